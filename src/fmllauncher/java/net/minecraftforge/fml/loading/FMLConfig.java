@@ -44,6 +44,7 @@ public class FMLConfig
         configSpec.define("maxThreads", -1);
         configSpec.define("versionCheck", Boolean.TRUE);
         configSpec.define("defaultConfigPath",  "defaultconfigs");
+        configSpec.define("scanCache", Boolean.TRUE);
     }
 
     private CommentedFileConfig configData;
@@ -80,6 +81,7 @@ public class FMLConfig
         LOGGER.trace(CORE, "Max threads for mod loading computed at {}", FMLConfig::loadingThreadCount);
         LOGGER.trace(CORE, "Version check is {}", FMLConfig::runVersionCheck);
         LOGGER.trace(CORE, "Default config paths at {}", FMLConfig::defaultConfigPath);
+        LOGGER.trace(CORE, "Mod scan cache is {}", FMLConfig::scanCacheEnabled);
         FMLPaths.getOrCreateGameRelativePath(Paths.get(FMLConfig.defaultConfigPath()), "default config directory");
     }
 
@@ -100,4 +102,8 @@ public class FMLConfig
     public static String defaultConfigPath() {
         return INSTANCE.configData.<String>getOptional("defaultConfigPath").orElse("defaultconfigs");
     }
+
+    public static boolean scanCacheEnabled() {
+        return INSTANCE.configData.<Boolean>getOptional("scanCache").orElse(Boolean.TRUE);
+    }
 }
@@ -20,6 +20,7 @@
 package net.minecraftforge.fml.loading.moddiscovery;
 
 import net.minecraftforge.forgespi.language.ModFileScanData;
+import net.minecraftforge.fml.loading.FMLConfig;
 import net.minecraftforge.fml.loading.LoadingModList;
 import net.minecraftforge.forgespi.locating.IModFile;
 import org.apache.logging.log4j.LogManager;
@@ -30,7 +31,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.TimeUnit;
 
 import static net.minecraftforge.fml.loading.LogMarkers.SCAN;
@@ -47,11 +49,13 @@ public class BackgroundScanHandler
 
     public BackgroundScanHandler(final Map<IModFile.Type, List<ModFile>> modFiles) {
         this.modFiles = modFiles;
-        modContentScanner = Executors.newSingleThreadExecutor(r -> {
-            final Thread thread = Executors.defaultThreadFactory().newThread(r);
+        // Work stealing, so large files split by the Scanner are shared between all threads
+        modContentScanner = new ForkJoinPool(FMLConfig.loadingThreadCount(), pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("modscanner-" + thread.getPoolIndex());
             thread.setDaemon(true);
             return thread;
-        });
+        }, null, false);
         scannedFiles = new ArrayList<>();
         pendingFiles = new ArrayList<>();
         allFiles = new ArrayList<>();
@@ -61,7 +65,7 @@ public class BackgroundScanHandler
         return modFiles;
     }
 
-    public void submitForScanning(final ModFile file) {
+    public synchronized void submitForScanning(final ModFile file) {
         if (modContentScanner.isShutdown()) {
             throw new IllegalStateException("Scanner has shutdown");
         }
@@ -73,12 +77,15 @@ public class BackgroundScanHandler
         file.setFutureScanResult(future);
     }
 
-    private void addCompletedFile(final ModFile file, final ModFileScanData modFileScanData, final Throwable throwable) {
+    private synchronized void addCompletedFile(final ModFile file, final ModFileScanData modFileScanData, final Throwable throwable) {
         if (throwable != null) {
             LOGGER.error(SCAN,"An error occurred scanning file {}", file, throwable);
         }
         pendingFiles.remove(file);
         scannedFiles.add(file);
+        if (pendingFiles.isEmpty()) {
+            ScanCache.logStatistics();
+        }
     }
 
     public void setLoadingModList(LoadingModList loadingModList)
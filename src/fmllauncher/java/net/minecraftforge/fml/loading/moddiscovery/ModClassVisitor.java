@@ -83,4 +83,8 @@ public class ModClassVisitor extends ClassVisitor
         annotations.addAll(collect);
     }
 
+    ScanCache.CachedClass getCachedClass() {
+        return new ScanCache.CachedClass(this.asmType, this.asmSuperType, this.interfaces);
+    }
+
 }
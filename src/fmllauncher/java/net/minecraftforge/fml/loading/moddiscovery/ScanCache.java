@@ -0,0 +1,456 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.loading.moddiscovery;
+
+import net.minecraftforge.fml.loading.FMLConfig;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.forgespi.language.ModFileScanData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.objectweb.asm.Type;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.minecraftforge.fml.loading.LogMarkers.SCAN;
+
+/**
+ * On disk cache of the class and annotation data found by the {@link Scanner}, so unchanged mod jars are not read with ASM again.
+ *
+ * Every jar gets its own file in the "modscancache" folder of the game directory. An entry is only used if the jar's
+ * path, size, modification time and SHA-1 hash all match, anything else (including a corrupt entry) counts as a miss
+ * and the jar is scanned normally. The cache can be turned off with the "scanCache" option of the FML config.
+ */
+public class ScanCache
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int MAGIC = 0x464D4C53; // FMLS
+    private static final int VERSION = 1;
+
+    private static final AtomicInteger HITS = new AtomicInteger();
+    private static final AtomicInteger MISSES = new AtomicInteger();
+    private static final AtomicLong SCAN_NANOS = new AtomicLong();
+
+    /**
+     * The raw data of a scanned class, ClassData does not expose its contents.
+     */
+    static class CachedClass
+    {
+        private final Type clazz;
+        private final Type parent;
+        private final Set<Type> interfaces;
+
+        CachedClass(final Type clazz, final Type parent, final Set<Type> interfaces)
+        {
+            this.clazz = clazz;
+            this.parent = parent;
+            this.interfaces = interfaces;
+        }
+    }
+
+    static class Key
+    {
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final byte[] hash;
+
+        private Key(final String path, final long size, final long modified, final byte[] hash)
+        {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        private boolean matches(final DataInputStream in) throws IOException
+        {
+            if (!path.equals(readString(in)) || size != in.readLong() || modified != in.readLong())
+                return false;
+            final byte[] other = new byte[in.readInt()];
+            in.readFully(other);
+            return MessageDigest.isEqual(hash, other);
+        }
+
+        private void write(final DataOutputStream out) throws IOException
+        {
+            writeString(out, path);
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.writeInt(hash.length);
+            out.write(hash);
+        }
+    }
+
+    /**
+     * @return The key for the file, or null if the file can not be cached
+     */
+    static Key keyFor(final ModFile file)
+    {
+        if (!FMLConfig.scanCacheEnabled())
+            return null;
+        final Path path = file.getFilePath();
+        try
+        {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) // Exploded directories in dev, they change all the time
+                return null;
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            final byte[] buffer = new byte[1 << 16];
+            try (InputStream in = Files.newInputStream(path))
+            {
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                    digest.update(buffer, 0, read);
+            }
+            return new Key(path.toAbsolutePath().toString(), attributes.size(), attributes.lastModifiedTime().toMillis(), digest.digest());
+        }
+        catch (IOException | NoSuchAlgorithmException e)
+        {
+            LOGGER.debug(SCAN, "Unable to compute scan cache key for {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Fills the classes and annotations from the cache entry for the key.
+     *
+     * @return True if a valid entry was found
+     */
+    static boolean load(final Key key, final Set<ModFileScanData.ClassData> classes, final Set<ModFileScanData.AnnotationData> annotations)
+    {
+        final Path file = getCacheFile(key);
+        if (!Files.exists(file))
+        {
+            MISSES.incrementAndGet();
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.matches(in))
+            {
+                LOGGER.debug(SCAN, "Scan cache entry for {} is out of date", key.path);
+                MISSES.incrementAndGet();
+                return false;
+            }
+            final Set<ModFileScanData.ClassData> cachedClasses = new LinkedHashSet<>();
+            for (int i = in.readInt(); i > 0; i--)
+            {
+                final Type clazz = readType(in);
+                final Type parent = in.readBoolean() ? readType(in) : null;
+                final Set<Type> interfaces = new LinkedHashSet<>();
+                for (int j = in.readInt(); j > 0; j--)
+                    interfaces.add(readType(in));
+                cachedClasses.add(new ModFileScanData.ClassData(clazz, parent, interfaces));
+            }
+            final Set<ModFileScanData.AnnotationData> cachedAnnotations = new LinkedHashSet<>();
+            for (int i = in.readInt(); i > 0; i--)
+            {
+                final Type annotationType = readType(in);
+                final ElementType targetType = ElementType.valueOf(readString(in));
+                final Type clazz = readType(in);
+                final String member = readString(in);
+                @SuppressWarnings("unchecked")
+                final Map<String, Object> values = (Map<String, Object>)readValue(in);
+                cachedAnnotations.add(new ModFileScanData.AnnotationData(annotationType, targetType, clazz, member, values));
+            }
+            classes.addAll(cachedClasses);
+            annotations.addAll(cachedAnnotations);
+            HITS.incrementAndGet();
+            return true;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.warn(SCAN, "Invalid scan cache entry {} for {}, it will be rebuilt", file, key.path, e);
+            MISSES.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the scan results for the key. The entry is written to a temporary file first, so a crash can not leave a partial entry behind.
+     */
+    static void save(final Key key, final Collection<CachedClass> classes, final Collection<ModFileScanData.AnnotationData> annotations)
+    {
+        final Path file = getCacheFile(key);
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try
+        {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                key.write(out);
+                out.writeInt(classes.size());
+                for (CachedClass data : classes)
+                {
+                    writeType(out, data.clazz);
+                    out.writeBoolean(data.parent != null);
+                    if (data.parent != null)
+                        writeType(out, data.parent);
+                    out.writeInt(data.interfaces.size());
+                    for (Type type : data.interfaces)
+                        writeType(out, type);
+                }
+                out.writeInt(annotations.size());
+                for (ModFileScanData.AnnotationData data : annotations)
+                {
+                    writeType(out, data.getAnnotationType());
+                    writeString(out, data.getTargetType().name());
+                    writeType(out, data.getClassType());
+                    writeString(out, data.getMemberName());
+                    writeValue(out, data.getAnnotationData());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            LOGGER.debug(SCAN, "Unable to write scan cache entry for {}", key.path, e);
+            try
+            {
+                Files.deleteIfExists(temp);
+            }
+            catch (IOException ignored) {}
+        }
+    }
+
+    static void addScanTime(final long nanos)
+    {
+        SCAN_NANOS.addAndGet(nanos);
+    }
+
+    static void logStatistics()
+    {
+        LOGGER.info(SCAN, "Mod file scan cache: {} hits, {} misses, {}ms spent scanning", HITS.get(), MISSES.get(), SCAN_NANOS.get() / 1_000_000);
+    }
+
+    private static Path getCacheFile(final Key key)
+    {
+        final StringBuilder name = new StringBuilder();
+        try
+        {
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(key.path.getBytes(StandardCharsets.UTF_8)))
+                name.append(String.format("%02x", b));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException(e); // Every JVM has SHA-1
+        }
+        return FMLPaths.GAMEDIR.get().resolve("modscancache").resolve(name.append(".bin").toString());
+    }
+
+    private static final byte STRING = 0, INTEGER = 1, LONG = 2, FLOAT = 3, DOUBLE = 4, BOOLEAN = 5, BYTE = 6, CHARACTER = 7, SHORT = 8,
+        TYPE = 9, ENUM = 10, LIST = 11, MAP = 12, ARRAY = 13;
+    private static final Class<?>[] ARRAY_TYPES = { null, int.class, long.class, float.class, double.class, boolean.class, byte.class, char.class, short.class };
+
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException
+    {
+        if (value instanceof String)
+        {
+            out.writeByte(STRING);
+            writeString(out, (String)value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer)value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(LONG);
+            out.writeLong((Long)value);
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float)value);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double)value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean)value);
+        }
+        else if (value instanceof Byte)
+        {
+            out.writeByte(BYTE);
+            out.writeByte((Byte)value);
+        }
+        else if (value instanceof Character)
+        {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character)value);
+        }
+        else if (value instanceof Short)
+        {
+            out.writeByte(SHORT);
+            out.writeShort((Short)value);
+        }
+        else if (value instanceof Type)
+        {
+            out.writeByte(TYPE);
+            writeType(out, (Type)value);
+        }
+        else if (value instanceof ModAnnotation.EnumHolder)
+        {
+            out.writeByte(ENUM);
+            writeString(out, ((ModAnnotation.EnumHolder)value).getDesc());
+            writeString(out, ((ModAnnotation.EnumHolder)value).getValue());
+        }
+        else if (value instanceof List)
+        {
+            out.writeByte(LIST);
+            out.writeInt(((List<?>)value).size());
+            for (Object o : (List<?>)value)
+                writeValue(out, o);
+        }
+        else if (value instanceof Map)
+        {
+            out.writeByte(MAP);
+            out.writeInt(((Map<?, ?>)value).size());
+            for (Map.Entry<?, ?> e : ((Map<?, ?>)value).entrySet())
+            {
+                writeString(out, (String)e.getKey());
+                writeValue(out, e.getValue());
+            }
+        }
+        else if (value != null && value.getClass().isArray())
+        {
+            final int type = indexOf(value.getClass().getComponentType());
+            if (type == -1)
+                throw new IOException("Unsupported annotation array type " + value.getClass());
+            out.writeByte(ARRAY);
+            out.writeByte(type);
+            final int length = Array.getLength(value);
+            out.writeInt(length);
+            for (int i = 0; i < length; i++)
+                writeValue(out, Array.get(value, i));
+        }
+        else
+            throw new IOException("Unsupported annotation value " + value);
+    }
+
+    private static Object readValue(final DataInputStream in) throws IOException
+    {
+        final byte tag = in.readByte();
+        switch (tag)
+        {
+            case STRING: return readString(in);
+            case INTEGER: return in.readInt();
+            case LONG: return in.readLong();
+            case FLOAT: return in.readFloat();
+            case DOUBLE: return in.readDouble();
+            case BOOLEAN: return in.readBoolean();
+            case BYTE: return in.readByte();
+            case CHARACTER: return in.readChar();
+            case SHORT: return in.readShort();
+            case TYPE: return readType(in);
+            case ENUM: return new ModAnnotation.EnumHolder(readString(in), readString(in));
+            case LIST:
+            {
+                final int size = in.readInt();
+                final List<Object> ret = new ArrayList<>(size);
+                for (int i = 0; i < size; i++)
+                    ret.add(readValue(in));
+                return ret;
+            }
+            case MAP:
+            {
+                final int size = in.readInt();
+                final Map<String, Object> ret = new HashMap<>();
+                for (int i = 0; i < size; i++)
+                    ret.put(readString(in), readValue(in));
+                return ret;
+            }
+            case ARRAY:
+            {
+                final Object ret = Array.newInstance(ARRAY_TYPES[in.readByte()], in.readInt());
+                for (int i = 0; i < Array.getLength(ret); i++)
+                    Array.set(ret, i, readValue(in));
+                return ret;
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static int indexOf(final Class<?> component)
+    {
+        for (int i = 1; i < ARRAY_TYPES.length; i++)
+        {
+            if (ARRAY_TYPES[i] == component)
+                return i;
+        }
+        return -1;
+    }
+
+    private static void writeType(final DataOutputStream out, final Type type) throws IOException
+    {
+        writeString(out, type.getDescriptor());
+    }
+
+    private static Type readType(final DataInputStream in) throws IOException
+    {
+        return Type.getType(readString(in));
+    }
+
+    // DataOutput.writeUTF is limited to 64k, annotation strings are not
+    private static void writeString(final DataOutputStream out, final String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException
+    {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -26,24 +26,50 @@ import org.apache.logging.log4j.Logger;
 import org.objectweb.asm.ClassReader;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
 
 import static net.minecraftforge.fml.loading.LogMarkers.SCAN;
 
 public class Scanner {
     private static final Logger LOGGER = LogManager.getLogger();
+    // Only the class structure and annotations are needed, skip everything else
+    private static final int READER_FLAGS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+    // Jars with more classes than this are split into several tasks
+    private static final int CLASSES_PER_TASK = 256;
     private final ModFile fileToScan;
 
     public Scanner(final ModFile fileToScan) {
         this.fileToScan = fileToScan;
     }
 
+    /**
+     * Scans every class of the file. When run from a {@link java.util.concurrent.ForkJoinPool}, large files
+     * are split across the pool. The results are merged in file order, so they do not depend on scheduling.
+     * Unchanged jars are restored from the {@link ScanCache} instead.
+     */
     public ModFileScanData scan() {
         ModFileScanData result = new ModFileScanData();
         result.addModFileInfo(fileToScan.getModFileInfo());
-        fileToScan.scanFile(p -> fileVisitor(p, result));
+        final ScanCache.Key key = ScanCache.keyFor(fileToScan);
+        if (key == null || !ScanCache.load(key, result.getClasses(), result.getAnnotations())) {
+            final long start = System.nanoTime();
+            final List<Path> paths = new ArrayList<>();
+            fileToScan.scanFile(paths::add);
+            final ScanTask scanned = new ScanTask(paths, 0, paths.size());
+            scanned.invoke();
+            result.getClasses().addAll(scanned.classes);
+            result.getAnnotations().addAll(scanned.annotations);
+            ScanCache.addScanTime(System.nanoTime() - start);
+            if (key != null) {
+                ScanCache.save(key, scanned.cachedClasses, scanned.annotations);
+            }
+        }
         final IModLanguageProvider loader = fileToScan.getLoader();
         if (loader != null) {
             LOGGER.debug(SCAN, "Scanning {} with language loader {}", fileToScan.getFilePath(), loader.name());
@@ -52,15 +78,54 @@ public class Scanner {
         return result;
     }
 
-    private void fileVisitor(final Path path, final ModFileScanData result) {
+    private void fileVisitor(final Path path, final Set<ModFileScanData.ClassData> classes, final List<ScanCache.CachedClass> cachedClasses, final Set<ModFileScanData.AnnotationData> annotations) {
         LOGGER.debug(SCAN,"Scanning {} path {}", fileToScan, path);
-        try (InputStream in = Files.newInputStream(path)){
+        try {
             ModClassVisitor mcv = new ModClassVisitor();
-            ClassReader cr = new ClassReader(in);
-            cr.accept(mcv, 0);
-            mcv.buildData(result.getClasses(), result.getAnnotations());
+            ClassReader cr = new ClassReader(Files.readAllBytes(path));
+            cr.accept(mcv, READER_FLAGS);
+            mcv.buildData(classes, annotations);
+            cachedClasses.add(mcv.getCachedClass());
         } catch (IOException | IllegalArgumentException e) {
             // mark path bad
         }
     }
+
+    private class ScanTask extends RecursiveTask<ScanTask> {
+        private final List<Path> paths;
+        private final int from;
+        private final int to;
+        private final Set<ModFileScanData.ClassData> classes = new LinkedHashSet<>();
+        private final List<ScanCache.CachedClass> cachedClasses = new ArrayList<>();
+        private final Set<ModFileScanData.AnnotationData> annotations = new LinkedHashSet<>();
+
+        private ScanTask(final List<Path> paths, final int from, final int to) {
+            this.paths = paths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ScanTask compute() {
+            if (to - from <= CLASSES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    fileVisitor(paths.get(i), classes, cachedClasses, annotations);
+                }
+                return this;
+            }
+            final int mid = (from + to) >>> 1;
+            final ScanTask first = new ScanTask(paths, from, mid);
+            final ScanTask second = new ScanTask(paths, mid, to);
+            first.fork();
+            second.compute();
+            first.join();
+            classes.addAll(first.classes);
+            classes.addAll(second.classes);
+            cachedClasses.addAll(first.cachedClasses);
+            cachedClasses.addAll(second.cachedClasses);
+            annotations.addAll(first.annotations);
+            annotations.addAll(second.annotations);
+            return this;
+        }
+    }
 }
@@ -50,6 +50,18 @@ public class ForgeConfig
 
         public final BooleanValue fixAdvancementLoading;
 
+        public final BooleanValue continuousTickProfiling;
+        public final DoubleValue continuousTickProfilingSampleRate;
+        public final IntValue continuousTickProfilingExportInterval;
+
+        public final IntValue worldWorkerMinTime;
+        public final IntValue worldWorkerMaxTime;
+
+        public final BooleanValue parallelWorldTicking;
+        public final IntValue parallelWorldTickingThreads;
+
+        public final BooleanValue dormantHoppers;
+
         Server(ForgeConfigSpec.Builder builder) {
             builder.comment("Server configuration settings")
                    .push("server");
@@ -109,6 +121,47 @@ public class ForgeConfig
                     .translation("forge.configgui.fixAdvancementLoading")
                     .define("fixAdvancementLoading", true);
 
+            continuousTickProfiling = builder
+                    .comment("Continuously record how long tile entities and entities take to tick, aggregated per type and per chunk. Results are available through '/forge track profile'.")
+                    .translation("forge.configgui.continuousTickProfiling")
+                    .define("continuousTickProfiling", false);
+
+            continuousTickProfilingSampleRate = builder
+                    .comment("The fraction of tile entities and entities that are timed while continuous tick profiling is enabled. Lower values reduce the overhead.")
+                    .translation("forge.configgui.continuousTickProfilingSampleRate")
+                    .defineInRange("continuousTickProfilingSampleRate", 0.05D, 0.0D, 1.0D);
+
+            continuousTickProfilingExportInterval = builder
+                    .comment("The time in minutes between exports of the continuous tick profiling data to the 'timings' folder. 0 disables periodic exports.")
+                    .translation("forge.configgui.continuousTickProfilingExportInterval")
+                    .defineInRange("continuousTickProfilingExportInterval", 0, 0, Integer.MAX_VALUE);
+
+            worldWorkerMinTime = builder
+                    .comment("The minimum time in milliseconds world workers (like '/forge generate') may use each tick. They only get this much while the server is behind.")
+                    .translation("forge.configgui.worldWorkerMinTime")
+                    .defineInRange("worldWorkerMinTime", 2, 1, 50);
+
+            worldWorkerMaxTime = builder
+                    .comment("The maximum time in milliseconds world workers may use each tick, even if the server has more time to spare.")
+                    .translation("forge.configgui.worldWorkerMaxTime")
+                    .defineInRange("worldWorkerMaxTime", 40, 1, 50);
+
+            parallelWorldTicking = builder
+                    .comment("EXPERIMENTAL: Tick the worlds of different dimensions at the same time. Mods that are not prepared for this may break, only enable it after testing your mod set.",
+                             "Not safe with vanilla map items, scoreboard objectives, or /tp and /execute in between dimensions while worlds are ticking.")
+                    .translation("forge.configgui.parallelWorldTicking")
+                    .define("parallelWorldTicking", false);
+
+            parallelWorldTickingThreads = builder
+                    .comment("The number of threads used to tick worlds in parallel, besides the server thread. 0 uses one less than the number of processors.")
+                    .translation("forge.configgui.parallelWorldTickingThreads")
+                    .defineInRange("parallelWorldTickingThreads", 0, 0, 64);
+
+            dormantHoppers = builder
+                    .comment("Let hoppers stop polling inventories that support change tracking until something changes. Inventories that change without updating their version are still checked every 5 seconds.")
+                    .translation("forge.configgui.dormantHoppers")
+                    .define("dormantHoppers", false);
+
             builder.pop();
         }
     }
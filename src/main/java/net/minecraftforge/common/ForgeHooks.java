@@ -133,7 +133,6 @@ import net.minecraft.world.biome.Biome;
 import net.minecraft.world.biome.BiomeAmbience;
 import net.minecraft.world.biome.BiomeGenerationSettings;
 import net.minecraft.world.biome.MobSpawnInfo;
-import net.minecraftforge.common.loot.IGlobalLootModifier;
 import net.minecraftforge.common.loot.LootModifierManager;
 import net.minecraftforge.common.loot.LootTableIdCondition;
 import net.minecraftforge.common.util.BlockSnapshot;
@@ -1303,10 +1302,7 @@ public class ForgeHooks
     public static List<ItemStack> modifyLoot(ResourceLocation lootTableId, List<ItemStack> generatedLoot, LootContext context) {
         context.setQueriedLootTableId(lootTableId); // In case the ID was set via copy constructor, this will be ignored: intended
         LootModifierManager man = ForgeInternalHandler.getLootModifierManager();
-        for (IGlobalLootModifier mod : man.getAllLootMods()) {
-            generatedLoot = mod.apply(generatedLoot, context);
-        }
-        return generatedLoot;
+        return man.modifyLoot(generatedLoot, context);
     }
 
     public static List<String> getModPacks()
@@ -24,15 +24,21 @@ import net.minecraft.entity.item.ItemEntity;
 import net.minecraft.entity.player.ServerPlayerEntity;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.world.World;
 import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.common.brewing.BrewingRecipeRegistry;
+import net.minecraftforge.common.capabilities.BlockCapabilityCache;
+import net.minecraftforge.common.crafting.RecipeIndex;
 import net.minecraftforge.common.loot.LootModifierManager;
 import net.minecraftforge.common.util.FakePlayerFactory;
+import net.minecraftforge.common.util.TagMembership;
 import net.minecraftforge.event.AddReloadListenerEvent;
 import net.minecraftforge.event.RegisterCommandsEvent;
 import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.network.PacketBatcher;
 import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.event.TagsUpdatedEvent;
@@ -42,6 +48,7 @@ import net.minecraftforge.event.TickEvent.Phase;
 import net.minecraftforge.event.TickEvent.ServerTickEvent;
 import net.minecraftforge.server.command.ForgeCommand;
 import net.minecraftforge.server.command.ConfigCommand;
+import net.minecraftforge.server.timings.TimingsExporter;
 
 public class ForgeInternalHandler
 {
@@ -72,12 +79,19 @@ public class ForgeInternalHandler
     {
         if (event.getWorld() instanceof ServerWorld)
             FakePlayerFactory.unloadWorld((ServerWorld) event.getWorld());
+        if (event.getWorld() instanceof World)
+            BlockCapabilityCache.unloadWorld((World) event.getWorld());
     }
 
     @SubscribeEvent
     public void onServerTick(ServerTickEvent event)
     {
         WorldWorkerManager.tick(event.phase == TickEvent.Phase.START);
+        if (event.phase == TickEvent.Phase.END)
+        {
+            TimingsExporter.tick();
+            PacketBatcher.flush();
+        }
     }
 
     @SubscribeEvent
@@ -113,6 +127,9 @@ public class ForgeInternalHandler
     public synchronized void tagsUpdated(TagsUpdatedEvent.VanillaTagTypes event)
     {
         ForgeHooks.updateBurns();
+        RecipeIndex.invalidate();
+        BrewingRecipeRegistry.invalidate();
+        TagMembership.updateAll(event.getTagManager());
     }
 
     @SubscribeEvent
@@ -29,7 +29,10 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -61,6 +64,10 @@ public class ForgeTagHandler
     private static Map<ResourceLocation, ITagCollection<?>> customTagTypes = Collections.emptyMap();
     private static Set<ResourceLocation> customTagTypeNames = Collections.emptySet();
     private static boolean tagTypesSet = false;
+    //Upper bound on how many custom tag types are read, resolved or reinjected at the same time
+    private static final int MAX_PARALLEL_TAG_TYPES = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    //Read and resolve timings of the last reload, completed and reported once the optional tags have been reinjected
+    private static Map<ResourceLocation, TagCollectionReaderInfo> pendingTimings = Collections.emptyMap();
 
     @Nullable
     private static <T extends IForgeRegistryEntry<T>> TagRegistry<T> getTagRegistry(IForgeRegistry<T> registry)
@@ -301,11 +308,14 @@ public class ForgeTagHandler
     public static void updateCustomTagTypes(List<TagCollectionReaderInfo> tagCollectionReaders)
     {
         ImmutableMap.Builder<ResourceLocation, ITagCollection<?>> builder = ImmutableMap.builder();
+        ImmutableMap.Builder<ResourceLocation, TagCollectionReaderInfo> timings = ImmutableMap.builder();
         for (TagCollectionReaderInfo info : tagCollectionReaders)
         {
-            builder.put(info.tagType, info.reader.buildTagCollectionFromMap(info.tagBuilders));
+            builder.put(info.tagType, info.tagCollection);
+            timings.put(info.tagType, info);
         }
         customTagTypes = builder.build();
+        pendingTimings = timings.build();
     }
 
     /**
@@ -326,15 +336,49 @@ public class ForgeTagHandler
      */
     public static CompletableFuture<List<TagCollectionReaderInfo>> getCustomTagTypeReloadResults(IResourceManager resourceManager, Executor backgroundExecutor, Map<ResourceLocation, TagCollectionReader<?>> readers)
     {
-        CompletableFuture<List<TagCollectionReaderInfo>> customResults = CompletableFuture.completedFuture(new ArrayList<>());
-        for (Map.Entry<ResourceLocation, TagCollectionReader<?>> entry : readers.entrySet())
+        List<Entry<ResourceLocation, TagCollectionReader<?>>> entries = new ArrayList<>(readers.entrySet());
+        TagCollectionReaderInfo[] results = new TagCollectionReaderInfo[entries.size()];
+        //Each type is read and resolved in the background phase of the reload, as resolving only looks up registry entries
+        return runBounded(entries.size(), backgroundExecutor, index -> {
+            Entry<ResourceLocation, TagCollectionReader<?>> entry = entries.get(index);
+            long start = System.nanoTime();
+            Map<ResourceLocation, ITag.Builder> tagBuilders = entry.getValue().readTagsFromManager(resourceManager, Runnable::run).join();
+            long read = System.nanoTime();
+            ITagCollection<?> tagCollection = entry.getValue().buildTagCollectionFromMap(tagBuilders);
+            results[index] = new TagCollectionReaderInfo(entry.getKey(), tagCollection, tagBuilders.size(), read - start, System.nanoTime() - read);
+        }).thenApply(v -> {
+            List<TagCollectionReaderInfo> list = new ArrayList<>(results.length);
+            Collections.addAll(list, results);
+            return list;
+        });
+    }
+
+    /**
+     * Runs the given task for every index in {@code [0, count)} on the executor, with at most {@link #MAX_PARALLEL_TAG_TYPES} indices being processed at once.
+     */
+    private static CompletableFuture<Void> runBounded(int count, Executor executor, IntConsumer task)
+    {
+        if (count == 0)
         {
-            customResults = customResults.thenCombine(entry.getValue().readTagsFromManager(resourceManager, backgroundExecutor), (results, result) -> {
-                results.add(new TagCollectionReaderInfo(entry.getKey(), entry.getValue(), result));
-                return results;
-            });
+            return CompletableFuture.completedFuture(null);
         }
-        return customResults;
+        ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < count; i++)
+        {
+            queue.add(i);
+        }
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(count, MAX_PARALLEL_TAG_TYPES)];
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i] = CompletableFuture.runAsync(() -> {
+                Integer index;
+                while ((index = queue.poll()) != null)
+                {
+                    task.accept(index);
+                }
+            }, executor);
+        }
+        return CompletableFuture.allOf(workers);
     }
 
     /**
@@ -344,15 +388,72 @@ public class ForgeTagHandler
      */
     public static void reinjectOptionalTagsCustomTypes()
     {
+        List<Entry<ResourceLocation, ITagCollection<?>>> entries = new ArrayList<>(customTagTypes.entrySet());
+        long[] reinjectNanos = new long[entries.size()];
+        //Reinjecting runs on the calling thread, only reading and resolving the tag files is spread over the background executor
         ImmutableMap.Builder<ResourceLocation, ITagCollection<?>> builder = ImmutableMap.builder();
-        for (Entry<ResourceLocation, ITagCollection<?>> entry : customTagTypes.entrySet())
+        for (int i = 0; i < entries.size(); i++)
         {
-            ResourceLocation registry = entry.getKey();
+            long start = System.nanoTime();
+            ResourceLocation registry = entries.get(i).getKey();
             TagRegistry<?> tagRegistry = TagRegistryManager.get(registry);
-            ITagCollection<?> tagCollection = entry.getValue();
+            ITagCollection<?> tagCollection = entries.get(i).getValue();
             builder.put(registry, tagRegistry == null ? tagCollection : tagRegistry.reinjectOptionalTags((ITagCollection) tagCollection));
+            reinjectNanos[i] = System.nanoTime() - start;
         }
         customTagTypes = builder.build();
+        logReloadTimings(entries, reinjectNanos);
+    }
+
+    /**
+     * Logs how long each custom tag type took to read, resolve and reinject during the last reload, slowest first.
+     */
+    private static void logReloadTimings(List<Entry<ResourceLocation, ITagCollection<?>>> entries, long[] reinjectNanos)
+    {
+        Map<ResourceLocation, TagCollectionReaderInfo> timings = pendingTimings;
+        pendingTimings = Collections.emptyMap();
+        if (timings.isEmpty())
+        {
+            //Synced from a server, nothing was read locally
+            return;
+        }
+        List<TagTypeTiming> reports = new ArrayList<>(entries.size());
+        long total = 0;
+        for (int i = 0; i < entries.size(); i++)
+        {
+            TagCollectionReaderInfo info = timings.get(entries.get(i).getKey());
+            if (info != null)
+            {
+                TagTypeTiming timing = new TagTypeTiming(info, reinjectNanos[i]);
+                reports.add(timing);
+                total += timing.totalNanos();
+            }
+        }
+        reports.sort((a, b) -> Long.compare(b.totalNanos(), a.totalNanos()));
+        LOGGER.info("Loaded {} custom tag types in {} ms of work ({} at a time), slowest: {}", reports.size(), TimeUnit.NANOSECONDS.toMillis(total), Math.min(reports.size(), MAX_PARALLEL_TAG_TYPES),
+                reports.stream().limit(5).map(t -> t.info.tagType + " " + TimeUnit.NANOSECONDS.toMillis(t.totalNanos()) + " ms").collect(Collectors.joining(", ")));
+        for (TagTypeTiming timing : reports)
+        {
+            LOGGER.debug("Custom tag type {}: {} tags, read {} ms, resolve {} ms, reinject {} ms", timing.info.tagType, timing.info.tagCount, TimeUnit.NANOSECONDS.toMillis(timing.info.readNanos),
+                    TimeUnit.NANOSECONDS.toMillis(timing.info.resolveNanos), TimeUnit.NANOSECONDS.toMillis(timing.reinjectNanos));
+        }
+    }
+
+    private static class TagTypeTiming
+    {
+        private final TagCollectionReaderInfo info;
+        private final long reinjectNanos;
+
+        private TagTypeTiming(TagCollectionReaderInfo info, long reinjectNanos)
+        {
+            this.info = info;
+            this.reinjectNanos = reinjectNanos;
+        }
+
+        private long totalNanos()
+        {
+            return info.readNanos + info.resolveNanos + reinjectNanos;
+        }
     }
 
     /**
@@ -424,14 +525,18 @@ public class ForgeTagHandler
     {
 
         private final ResourceLocation tagType;
-        private final TagCollectionReader<?> reader;
-        private final Map<ResourceLocation, ITag.Builder> tagBuilders;
+        private final ITagCollection<?> tagCollection;
+        private final int tagCount;
+        private final long readNanos;
+        private final long resolveNanos;
 
-        private TagCollectionReaderInfo(ResourceLocation tagType, TagCollectionReader<?> reader, Map<ResourceLocation, ITag.Builder> tagBuilders)
+        private TagCollectionReaderInfo(ResourceLocation tagType, ITagCollection<?> tagCollection, int tagCount, long readNanos, long resolveNanos)
         {
             this.tagType = tagType;
-            this.reader = reader;
-            this.tagBuilders = tagBuilders;
+            this.tagCollection = tagCollection;
+            this.tagCount = tagCount;
+            this.readNanos = readNanos;
+            this.resolveNanos = resolveNanos;
         }
     }
 }
\ No newline at end of file
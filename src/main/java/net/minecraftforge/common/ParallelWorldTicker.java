@@ -0,0 +1,320 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.profiler.EmptyProfiler;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerChunkProvider;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.fml.common.ObfuscationReflectionHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Ticks the worlds of the server concurrently, one thread per world, when enabled with the 'parallelWorldTicking' server config option.
+ * The option is experimental and off by default, because vanilla itself reaches into other worlds during a world tick, see below.
+ *
+ * While a world is ticked on a pool thread, that thread owns the world, so chunk and tile entity access work as they do
+ * on the server thread. The overworld is always ticked on the server thread itself. Everything that happens during a
+ * world tick, including world tick, entity and tile entity events, may run at the same time as the ticks of other worlds.
+ *
+ * Operations that reach into another world must not run during that phase. Use {@link #runSynchronized(Runnable)} for them,
+ * it defers the operation until all worlds finished ticking, and runs it on the server thread. Forge already does this for:
+ * <ul>
+ * <li>Entity and player teleports between dimensions, changeDimension returns null if the teleport was deferred.</li>
+ * </ul>
+ * The following are safe to use from any world tick:
+ * <ul>
+ * <li>Sending packets, including through {@link net.minecraftforge.fml.network.PacketDistributor#DIMENSION} for other dimensions.
+ *     The player list only changes between world ticks.</li>
+ * <li>{@link MinecraftServer#execute(Runnable)}, the task runs on the server thread after the tick.</li>
+ * </ul>
+ * Vanilla does not follow this rule in several places, which are NOT safe while the option is enabled:
+ * <ul>
+ * <li>Map items: {@link ServerWorld#getMapData(String)}, {@link ServerWorld#registerMapData} and {@link ServerWorld#getNextMapId()}
+ *     use the global saved data stored with the overworld, and map data shared with item frames in other worlds.</li>
+ * <li>The scoreboard is shared by all worlds, kill and other criteria and objective changes update it from any world.</li>
+ * <li>{@link net.minecraft.entity.player.ServerPlayerEntity#teleport} to another world, used by the /tp and /execute in commands,
+ *     is not deferred. Only changeDimension is.</li>
+ * <li>Any saved data of another world, including the global data stored with the overworld.</li>
+ * </ul>
+ * Code that needs any of these during a world tick should use {@link #runSynchronized(Runnable)} or {@link #deferIfParallel(Runnable)}.
+ *
+ * Chunks of a world that is not ticking on a pool thread at that moment, like the overworld once its tick is done, are loaded by
+ * the server thread while it waits for the other worlds, so reading blocks of such a world does not hang. Reading blocks of a world
+ * that is ticking on another pool thread waits until that world finished its tick, two worlds reading each other that way will hang.
+ *
+ * Worlds are ticked one after another as before while the profiler is running, so the profiler results stay correct.
+ */
+public class ParallelWorldTicker
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Field WORLD_THREAD = ObfuscationReflectionHelper.findField(World.class, "field_217407_c");
+    private static final Field CHUNK_PROVIDER_THREAD = findThreadField(ServerChunkProvider.class);
+
+    private static final Queue<Runnable> deferred = new ConcurrentLinkedQueue<>();
+    private static volatile boolean parallelPhase = false;
+    private static boolean warned = false;
+    private static ExecutorService pool;
+    private static int poolSize;
+
+    /**
+     * Forge internal, called by the server to tick every world.
+     */
+    public static void tickWorlds(MinecraftServer server, ServerWorld[] worlds, Consumer<ServerWorld> ticker)
+    {
+        if (!ForgeConfig.SERVER.parallelWorldTicking.get() || worlds.length < 2 || server.getProfiler() != EmptyProfiler.INSTANCE)
+        {
+            for (ServerWorld world : worlds)
+                ticker.accept(world);
+            return;
+        }
+
+        if (!warned)
+        {
+            warned = true;
+            LOGGER.warn("Ticking worlds in parallel. This is experimental: map items, scoreboard updates and teleports to other worlds through /tp or /execute in are not safe while it is enabled.");
+        }
+        ExecutorService pool = getPool(worlds.length - 1);
+        Thread serverThread = Thread.currentThread();
+        List<WorldTick> ticks = new ArrayList<>(worlds.length - 1);
+        ServerWorld overworld = null;
+        parallelPhase = true;
+        try
+        {
+            for (ServerWorld world : worlds)
+            {
+                if (world.getDimensionKey() == World.OVERWORLD)
+                {
+                    overworld = world;
+                }
+                else
+                {
+                    WorldTick tick = new WorldTick(world);
+                    tick.future = CompletableFuture.runAsync(() -> tickOwned(tick, ticker, serverThread), pool);
+                    ticks.add(tick);
+                }
+            }
+            if (overworld != null)
+                ticker.accept(overworld);
+
+            CompletableFuture<Void> all = CompletableFuture.allOf(ticks.stream().map(t -> t.future).toArray(CompletableFuture[]::new));
+            awaitDriving(all, overworld, ticks);
+            try
+            {
+                all.join();
+            }
+            catch (CompletionException e)
+            {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException)e.getCause(); // Keep the crash report of the world that failed
+                if (e.getCause() instanceof Error)
+                    throw (Error)e.getCause();
+                throw e;
+            }
+        }
+        finally
+        {
+            parallelPhase = false;
+        }
+
+        Runnable task;
+        while ((task = deferred.poll()) != null)
+            task.run();
+    }
+
+    /**
+     * Runs the task right away, unless the worlds are currently ticked in parallel. In that case the task is run on the server thread
+     * once all worlds finished ticking, in the order the tasks were submitted.
+     */
+    public static void runSynchronized(Runnable task)
+    {
+        if (parallelPhase)
+            deferred.add(task);
+        else
+            task.run();
+    }
+
+    /**
+     * Helper for methods that reach into other worlds.
+     *
+     * @return True if the task was deferred, and the caller should return without doing its work
+     */
+    public static boolean deferIfParallel(Runnable task)
+    {
+        if (!parallelPhase)
+            return false;
+        deferred.add(task);
+        return true;
+    }
+
+    /**
+     * @return True while worlds are being ticked in parallel
+     */
+    public static boolean isParallelPhase()
+    {
+        return parallelPhase;
+    }
+
+    //Internal only, used to stop the threads when the server shuts down.
+    public static synchronized void shutdown()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+        deferred.clear();
+    }
+
+    /**
+     * Waits for the worlds ticking on the pool, while running the chunk tasks of every world the server thread owns at the moment.
+     * Worlds ticking on the pool that read chunks of those worlds queue tasks for their owner and wait for them, without this
+     * the server thread would never run them and the server would hang.
+     */
+    private static void awaitDriving(CompletableFuture<Void> all, @Nullable ServerWorld overworld, List<WorldTick> ticks)
+    {
+        while (!all.isDone())
+        {
+            boolean worked = overworld != null && overworld.getChunkProvider().driveOneTask();
+            for (WorldTick tick : ticks)
+            {
+                // The lock is held by the pool thread for the whole tick, so it is only free while the server thread owns the world
+                if (!tick.future.isDone() && tick.lock.tryLock())
+                {
+                    try
+                    {
+                        worked |= tick.world.getChunkProvider().driveOneTask();
+                    }
+                    finally
+                    {
+                        tick.lock.unlock();
+                    }
+                }
+            }
+            if (!worked)
+                LockSupport.parkNanos("waiting for worlds to tick", 100000L);
+        }
+    }
+
+    private static void tickOwned(WorldTick tick, Consumer<ServerWorld> ticker, Thread serverThread)
+    {
+        tick.lock.lock();
+        try
+        {
+            setOwner(tick.world, Thread.currentThread());
+            try
+            {
+                ticker.accept(tick.world);
+            }
+            finally
+            {
+                setOwner(tick.world, serverThread);
+            }
+        }
+        finally
+        {
+            tick.lock.unlock();
+        }
+    }
+
+    private static class WorldTick
+    {
+        private final ServerWorld world;
+        private final ReentrantLock lock = new ReentrantLock();
+        private CompletableFuture<Void> future;
+
+        private WorldTick(ServerWorld world)
+        {
+            this.world = world;
+        }
+    }
+
+    // World and ServerChunkProvider only allow access from the thread that owns them, and use the server thread for everything else
+    private static void setOwner(ServerWorld world, Thread thread)
+    {
+        try
+        {
+            WORLD_THREAD.set(world, thread);
+            CHUNK_PROVIDER_THREAD.set(world.getChunkProvider(), thread);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static synchronized ExecutorService getPool(int worlds)
+    {
+        int size = ForgeConfig.SERVER.parallelWorldTickingThreads.get();
+        if (size <= 0)
+            size = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        size = Math.min(size, worlds);
+        if (pool != null && poolSize != size)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+        if (pool == null)
+        {
+            AtomicInteger count = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(size, r -> {
+                Thread thread = new Thread(r, "Forge World Tick #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler((t, e) -> LOGGER.error("Uncaught exception in {}", t.getName(), e));
+                return thread;
+            });
+            poolSize = size;
+        }
+        return pool;
+    }
+
+    // The owning thread is the only Thread field of the chunk provider
+    private static Field findThreadField(Class<?> cls)
+    {
+        for (Field field : cls.getDeclaredFields())
+        {
+            if (field.getType() == Thread.class && !Modifier.isStatic(field.getModifiers()))
+            {
+                field.setAccessible(true);
+                return field;
+            }
+        }
+        throw new IllegalStateException("Could not find the owning thread of " + cls.getName());
+    }
+}
@@ -23,12 +23,26 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nullable;
 
@@ -37,10 +51,10 @@ import net.minecraftforge.fml.loading.FMLLoader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import com.google.common.collect.ImmutableMap;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
@@ -50,15 +64,40 @@ import org.apache.logging.log4j.MarkerManager;
  * <p>
  * Modders should use {@link #getLastKnownUsername(UUID)} to determine a players
  * last known username.<br>
- * For convenience, {@link #getMap()} is provided to get an immutable copy of
+ * For convenience, {@link #getMap()} is provided to get a read-only view of
  * the caches underlying map.
+ * <p>
+ * Changes are not written to the cache file right away. They are appended to a
+ * journal next to it by a background thread, a few seconds after they happen.
+ * Once the journal gets long, the whole cache is written to the cache file and
+ * the journal starts over.
  */
 public final class UsernameCache {
 
-    private static Map<UUID, String> map = new HashMap<>();
+    private static final Map<UUID, String> map = new ConcurrentHashMap<>();
+    private static final Map<UUID, String> view = Collections.unmodifiableMap(map);
 
     private static final Path saveFile = FMLLoader.getGamePath().resolve("usernamecache.json");
+    private static final Path journalFile = FMLLoader.getGamePath().resolve("usernamecache.journal");
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private static final Gson journalGson = new Gson();
+
+    /** How long to wait for more changes before writing them */
+    private static final long SAVE_DELAY_MS = 5000;
+    /** The journal is compacted once it has this many entries, or more entries than half the cache */
+    private static final int MIN_COMPACT_ENTRIES = 1024;
+
+    private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Forge Username Cache Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** Changes not written yet, as uuid and username, the username is null for removals */
+    private static final Queue<String[]> pending = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private static volatile boolean compactRequested;
+    /** Entries in the journal file, only used by the writer thread once loaded */
+    private static int journalEntries;
 
     private static final Logger LOGGER = LogManager.getLogger(UsernameCache.class);
     private static final Marker USRCACHE = MarkerManager.getMarker("USERNAMECACHE");
@@ -78,10 +117,9 @@ public final class UsernameCache {
         Objects.requireNonNull(uuid);
         Objects.requireNonNull(username);
 
-        if (username.equals(map.get(uuid))) return;
+        if (username.equals(map.put(uuid, username))) return;
 
-        map.put(uuid, username);
-        save();
+        journal(uuid, username);
     }
 
     /**
@@ -97,7 +135,7 @@ public final class UsernameCache {
 
         if (map.remove(uuid) != null)
         {
-            save();
+            journal(uuid, null);
             return true;
         }
 
@@ -135,21 +173,42 @@ public final class UsernameCache {
     }
 
     /**
-     * Get an immutable copy of the cache's underlying map
+     * Get a read-only view of the cache's underlying map.
+     * It reflects later changes, copy it if a snapshot is needed.
      *
      * @return the map
      */
     public static Map<UUID, String> getMap()
     {
-        return ImmutableMap.copyOf(map);
+        return view;
     }
 
     /**
-     * Save the cache to file
+     * Save the whole cache to file, in the background
      */
     protected static void save()
     {
-        new SaveThread(gson.toJson(map)).start();
+        compactRequested = true;
+        scheduleWrite();
+    }
+
+    /**
+     * Write all pending changes now, waiting until they are written
+     */
+    protected static void flush()
+    {
+        try
+        {
+            writer.submit(UsernameCache::writePending).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            LOGGER.error(USRCACHE, "Failed to save username cache to file!", e.getCause());
+        }
     }
 
     /**
@@ -157,65 +216,144 @@ public final class UsernameCache {
      */
     protected static void load()
     {
-        if (!Files.exists(saveFile)) return;
+        map.clear();
+        journalEntries = 0;
 
-        try (final BufferedReader reader = Files.newBufferedReader(saveFile, Charsets.UTF_8))
+        if (Files.exists(saveFile))
         {
-            @SuppressWarnings("serial")
-            Type type = new TypeToken<Map<UUID, String>>(){}.getType();
-            map = gson.fromJson(reader, type);
-        }
-        catch (JsonSyntaxException | IOException e)
-        {
-            LOGGER.error(USRCACHE,"Could not parse username cache file as valid json, deleting file {}", saveFile, e);
-            try
+            try (final BufferedReader reader = Files.newBufferedReader(saveFile, Charsets.UTF_8))
             {
-                Files.delete(saveFile);
+                @SuppressWarnings("serial")
+                Type type = new TypeToken<Map<UUID, String>>(){}.getType();
+                Map<UUID, String> loaded = gson.fromJson(reader, type);
+                // Can sometimes be null when the json file is malformed
+                if (loaded != null)
+                    loaded.forEach((uuid, username) -> {
+                        if (uuid != null && username != null)
+                            map.put(uuid, username);
+                    });
             }
-            catch (IOException e1)
+            catch (JsonSyntaxException | IOException e)
             {
-                LOGGER.error(USRCACHE,"Could not delete file {}", saveFile.toString());
+                LOGGER.error(USRCACHE,"Could not parse username cache file as valid json, deleting file {}", saveFile, e);
+                try
+                {
+                    Files.delete(saveFile);
+                }
+                catch (IOException e1)
+                {
+                    LOGGER.error(USRCACHE,"Could not delete file {}", saveFile.toString());
+                }
             }
         }
-        finally
+
+        loadJournal();
+    }
+
+    private static void loadJournal()
+    {
+        if (!Files.exists(journalFile)) return;
+
+        try
         {
-            // Can sometimes occur when the json file is malformed
-            if (map == null)
+            // A journal older than the cache file was already compacted into it, but could not be deleted
+            if (Files.exists(saveFile) && Files.getLastModifiedTime(journalFile).compareTo(Files.getLastModifiedTime(saveFile)) < 0)
             {
-                map = new HashMap<>();
+                Files.delete(journalFile);
+                return;
+            }
+
+            for (String line : Files.readAllLines(journalFile, StandardCharsets.UTF_8))
+            {
+                if (line.isEmpty()) continue;
+                try
+                {
+                    String[] entry = journalGson.fromJson(line, String[].class);
+                    UUID uuid = UUID.fromString(entry[0]);
+                    if (entry.length > 1 && entry[1] != null)
+                        map.put(uuid, entry[1]);
+                    else
+                        map.remove(uuid);
+                    journalEntries++;
+                }
+                catch (JsonParseException | IllegalArgumentException | NullPointerException | ArrayIndexOutOfBoundsException e)
+                {
+                    // Most likely the last line, cut off by a crash while it was written
+                    LOGGER.warn(USRCACHE, "Skipping malformed username cache journal entry: {}", line);
+                }
             }
         }
+        catch (IOException e)
+        {
+            LOGGER.error(USRCACHE, "Could not read username cache journal {}", journalFile, e);
+        }
+    }
+
+    private static void journal(UUID uuid, @Nullable String username)
+    {
+        pending.add(new String[] { uuid.toString(), username });
+        scheduleWrite();
+    }
+
+    private static void scheduleWrite()
+    {
+        if (writeScheduled.compareAndSet(false, true))
+            writer.schedule(UsernameCache::writePending, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Used for saving the {@link com.google.gson.Gson#toJson(Object) Gson}
-     * representation of the cache to disk
+     * Only called on the writer thread
      */
-    private static class SaveThread extends Thread {
-
-        /** The data that will be saved to disk */
-        private final String data;
+    private static void writePending()
+    {
+        writeScheduled.set(false);
 
-        public SaveThread(String data)
-        {
-            this.data = data;
-        }
+        List<String> lines = new ArrayList<>();
+        String[] entry;
+        while ((entry = pending.poll()) != null)
+            lines.add(journalGson.toJson(entry));
 
-        @Override
-        public void run()
+        try
         {
-            try
+            if (compactRequested || journalEntries + lines.size() >= Math.max(MIN_COMPACT_ENTRIES, map.size() / 2))
             {
-                // Make sure we don't save when another thread is still saving
-                synchronized (saveFile)
-                {
-                    Files.write(saveFile, data.getBytes(StandardCharsets.UTF_8));
-                }
+                compactRequested = false;
+                compact();
             }
-            catch (IOException e)
+            else if (!lines.isEmpty())
             {
-                LOGGER.error(USRCACHE, "Failed to save username cache to file!", e);
+                Files.write(journalFile, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                journalEntries += lines.size();
             }
         }
+        catch (IOException e)
+        {
+            LOGGER.error(USRCACHE, "Failed to save username cache to file, retrying later", e);
+            // The map already holds every change taken from the queue, so retry with a full save.
+            // That also replaces a journal which may end in a partly written line.
+            compactRequested = true;
+            scheduleWrite();
+        }
+    }
+
+    /**
+     * Writes the whole cache to the cache file and starts a new journal. The map already contains
+     * all changes in the journal, and maybe some that are still pending, which is fine to write twice.
+     */
+    private static void compact() throws IOException
+    {
+        Path temp = saveFile.resolveSibling(saveFile.getFileName() + ".tmp");
+        Files.write(temp, gson.toJson(new HashMap<>(map)).getBytes(StandardCharsets.UTF_8));
+        try
+        {
+            Files.move(temp, saveFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(temp, saveFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(journalFile);
+        journalEntries = 0;
+        LOGGER.debug(USRCACHE, "Saved {} usernames to {}", map.size(), saveFile);
     }
 }
@@ -20,68 +20,247 @@
 package net.minecraftforge.common;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+
+import net.minecraft.util.RegistryKey;
+import net.minecraft.world.World;
+
+/**
+ * Runs {@link IWorker}s on the server thread in the time left over at the end of each tick.
+ *
+ * The time budget is derived from the average tick time, so workers only use what the server does not need. Workers are grouped
+ * by dimension and every group gets a fair share of the budget, weighted by the highest {@link Priority} in it. Inside a group,
+ * workers share the time by their priority. When the server falls behind, workers only get the minimum budget and are run less
+ * often, until the server catches up again.
+ */
 public class WorldWorkerManager
 {
-    private static List<IWorker> workers = new ArrayList<IWorker>();
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int MAX_BACKOFF = 16;
+    private static final Object GLOBAL = new Object(); // Group for workers that are not bound to a dimension
+
+    private static final Queue<IWorker> added = new ConcurrentLinkedQueue<>();
+    private static final Map<Object, Group> groups = new LinkedHashMap<>();
+    private static int size = 0;
     private static long startTime = -1;
-    private static int index = 0;
+    private static double averageTickTime = -1;
+    private static int backoff = 1;
+    private static int skipped = 0;
+    private static volatile long lastBudget = 0;
+    private static volatile long lastTimeSpent = 0;
+    private static volatile long totalTimeSpent = 0;
+    private static volatile List<WorkerInfo> snapshot = Collections.emptyList();
 
     public static void tick(boolean start)
     {
         if (start)
         {
-            startTime = System.currentTimeMillis();
+            startTime = System.nanoTime();
             return;
         }
 
-        index = 0;
-        IWorker task = getNext();
-        if (task == null)
+        if (startTime != -1)
+        {
+            long tickTime = System.nanoTime() - startTime;
+            averageTickTime = averageTickTime < 0 ? tickTime : averageTickTime * 0.9 + tickTime * 0.1;
+        }
+
+        drainAdded();
+        if (size == 0)
+        {
+            lastBudget = lastTimeSpent = 0;
             return;
+        }
 
-        long time = 50 - (System.currentTimeMillis() - startTime);
-        if (time < 10)
-            time = 10; //If ticks are lagging, give us at least 10ms to do something.
-        time += System.currentTimeMillis();
+        long min = TimeUnit.MILLISECONDS.toNanos(ForgeConfig.SERVER.worldWorkerMinTime.get());
+        long max = Math.max(min, TimeUnit.MILLISECONDS.toNanos(ForgeConfig.SERVER.worldWorkerMaxTime.get()));
+        long budget;
+        if (averageTickTime >= TICK_NANOS)
+        {
+            // The server is behind, back off so it gets a chance to catch up
+            if (++skipped < backoff)
+            {
+                lastBudget = lastTimeSpent = 0;
+                return;
+            }
+            skipped = 0;
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+            budget = min;
+        }
+        else
+        {
+            skipped = 0;
+            backoff = 1;
+            budget = Math.max(min, Math.min(max, TICK_NANOS - (long)averageTickTime));
+        }
 
-        while (System.currentTimeMillis() < time && task != null)
+        for (Group group : groups.values())
+            group.startTick();
+
+        long begin = System.nanoTime();
+        long deadline = begin + budget;
+        long now = begin;
+        Worker task;
+        while (now < deadline && (task = getNext()) != null)
         {
-            boolean again = task.doWork();
+            boolean again = task.worker.doWork();
+            long end = System.nanoTime();
+            task.record(end - now, end);
+            now = end;
 
-            if (!task.hasWork())
-            {
+            if (!task.worker.hasWork())
                 remove(task);
-                task = getNext();
-            }
             else if (!again)
+                task.done = true;
+        }
+
+        lastBudget = budget;
+        lastTimeSpent = now - begin;
+        totalTimeSpent += now - begin;
+        updateSnapshot();
+    }
+
+    public static void addWorker(IWorker worker)
+    {
+        added.add(worker);
+    }
+
+    /**
+     * @return The number of workers that still have work
+     */
+    public static int getQueueDepth()
+    {
+        return snapshot.size() + added.size();
+    }
+
+    /**
+     * @return The time in nanoseconds the workers were allowed to use in the last tick
+     */
+    public static long getLastBudget()
+    {
+        return lastBudget;
+    }
+
+    /**
+     * @return The time in nanoseconds the workers used in the last tick
+     */
+    public static long getLastTimeSpent()
+    {
+        return lastTimeSpent;
+    }
+
+    /**
+     * @return The time in nanoseconds the workers used since the server started
+     */
+    public static long getTotalTimeSpent()
+    {
+        return totalTimeSpent;
+    }
+
+    /**
+     * @return Information about every worker that was scheduled in the last tick
+     */
+    public static List<WorkerInfo> getWorkers()
+    {
+        return snapshot;
+    }
+
+    private static void drainAdded()
+    {
+        IWorker worker;
+        while ((worker = added.poll()) != null)
+        {
+            RegistryKey<World> dimension = worker.getDimension();
+            Group group = groups.computeIfAbsent(dimension == null ? GLOBAL : dimension, Group::new);
+            group.workers.add(new Worker(worker, dimension, group));
+            size++;
+        }
+    }
+
+    /**
+     * Picks the group that used the least of its share this tick, and the worker inside that group that used the least of its share.
+     * Ties go to whichever ran longest ago, so equal workers take turns.
+     */
+    @Nullable
+    private static Worker getNext()
+    {
+        Group bestGroup = null;
+        Worker best = null;
+        for (Group group : groups.values())
+        {
+            Worker candidate = null;
+            int weight = 0;
+            for (Worker worker : group.workers)
+            {
+                if (worker.done)
+                    continue;
+                weight = Math.max(weight, worker.priority.weight);
+                if (candidate == null || worker.isBefore(candidate))
+                    candidate = worker;
+            }
+            if (candidate == null)
+                continue;
+            group.weight = weight;
+            if (bestGroup == null || group.isBefore(bestGroup))
             {
-                task = getNext();
+                bestGroup = group;
+                best = candidate;
             }
         }
+        return best;
     }
 
-    public static synchronized void addWorker(IWorker worker)
+    private static void remove(Worker worker)
     {
-        workers.add(worker);
+        worker.group.workers.remove(worker);
+        if (worker.group.workers.isEmpty())
+            groups.remove(worker.group.key);
+        size--;
     }
 
-    private static synchronized IWorker getNext()
+    private static void updateSnapshot()
     {
-        return workers.size() > index ? workers.get(index++) : null;
+        List<WorkerInfo> infos = new ArrayList<>(size);
+        for (Group group : groups.values())
+            for (Worker worker : group.workers)
+                infos.add(new WorkerInfo(worker));
+        snapshot = Collections.unmodifiableList(infos);
     }
 
-    private static synchronized void remove(IWorker worker)
+    //Internal only, used to clear everything when the server shuts down.
+    public static void clear()
     {
-        workers.remove(worker);
-        index--;
+        added.clear();
+        groups.clear();
+        size = 0;
+        startTime = -1;
+        averageTickTime = -1;
+        backoff = 1;
+        skipped = 0;
+        lastBudget = lastTimeSpent = totalTimeSpent = 0;
+        snapshot = Collections.emptyList();
     }
 
-    //Internal only, used to clear everything when the server shuts down.
-    public static synchronized void clear()
+    public enum Priority
     {
-        workers.clear();
+        LOW(1),
+        NORMAL(4),
+        HIGH(16);
+
+        private final int weight;
+
+        Priority(int weight)
+        {
+            this.weight = weight;
+        }
     }
 
     public static interface IWorker
@@ -93,5 +272,152 @@ public class WorldWorkerManager
          * Returning false will skip calling this worker until next tick.
          */
         boolean doWork();
+
+        /**
+         * Workers of a higher priority get a larger share of the time available to their dimension.
+         * Read once, when the worker is added.
+         */
+        default Priority getPriority()
+        {
+            return Priority.NORMAL;
+        }
+
+        /**
+         * The dimension this worker works on, used to share time fairly between dimensions. Null if it is not bound to one.
+         * Read once, when the worker is added.
+         */
+        @Nullable
+        default RegistryKey<World> getDimension()
+        {
+            return null;
+        }
+
+        /**
+         * A name to display in the worker list of the '/forge workers' command.
+         */
+        default String getName()
+        {
+            return getClass().getName();
+        }
+    }
+
+    public static class WorkerInfo
+    {
+        private final String name;
+        @Nullable
+        private final RegistryKey<World> dimension;
+        private final Priority priority;
+        private final long lastTickTime;
+        private final long totalTime;
+
+        private WorkerInfo(Worker worker)
+        {
+            this.name = worker.worker.getName();
+            this.dimension = worker.dimension;
+            this.priority = worker.priority;
+            this.lastTickTime = worker.spent;
+            this.totalTime = worker.total;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        @Nullable
+        public RegistryKey<World> getDimension()
+        {
+            return dimension;
+        }
+
+        public Priority getPriority()
+        {
+            return priority;
+        }
+
+        /**
+         * @return The time in nanoseconds this worker used in the last tick
+         */
+        public long getLastTickTime()
+        {
+            return lastTickTime;
+        }
+
+        /**
+         * @return The time in nanoseconds this worker used since it was added
+         */
+        public long getTotalTime()
+        {
+            return totalTime;
+        }
+    }
+
+    private static class Group
+    {
+        private final Object key;
+        private final List<Worker> workers = new ArrayList<>();
+        private int weight;
+        private long spent;
+        private long lastRun;
+
+        private Group(Object key)
+        {
+            this.key = key;
+        }
+
+        private void startTick()
+        {
+            spent = 0;
+            for (Worker worker : workers)
+            {
+                worker.spent = 0;
+                worker.done = false;
+            }
+        }
+
+        // Compares spent / weight without dividing
+        private boolean isBefore(Group other)
+        {
+            long self = spent * other.weight;
+            long that = other.spent * weight;
+            return self < that || (self == that && lastRun < other.lastRun);
+        }
+    }
+
+    private static class Worker
+    {
+        private final IWorker worker;
+        private final Priority priority;
+        @Nullable
+        private final RegistryKey<World> dimension;
+        private final Group group;
+        private boolean done;
+        private long spent;
+        private long total;
+        private long lastRun;
+
+        private Worker(IWorker worker, @Nullable RegistryKey<World> dimension, Group group)
+        {
+            this.worker = worker;
+            this.priority = worker.getPriority();
+            this.dimension = dimension;
+            this.group = group;
+        }
+
+        private void record(long time, long now)
+        {
+            spent += time;
+            total += time;
+            lastRun = now;
+            group.spent += time;
+            group.lastRun = now;
+        }
+
+        private boolean isBefore(Worker other)
+        {
+            long self = spent * other.priority.weight;
+            long that = other.spent * priority.weight;
+            return self < that || (self == that && lastRun < other.lastRun);
+        }
     }
 }
@@ -20,15 +20,35 @@
 package net.minecraftforge.common.brewing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.crafting.Ingredient;
 import net.minecraft.util.NonNullList;
+import net.minecraftforge.common.crafting.RecipeIndex;
 
+/**
+ * Lookups only test the recipes that can accept the given items, using an index of the inputs and ingredients
+ * of plain {@link BrewingRecipe}s. Other recipes are always tested, and all recipes are tested in the order they
+ * were added. As ingredients may use tags, the index is built on first use and rebuilt after tags changed.
+ */
 public class BrewingRecipeRegistry {
 
     private static List<IBrewingRecipe> recipes = new ArrayList<IBrewingRecipe>();
+    private static volatile Index index;
+    /** Changes whenever the index does, invalidating remembered results */
+    private static volatile int version;
+    // Keyed by the inventory of a brewing stand
+    private static final Cache<NonNullList<ItemStack>, CanBrewResult> canBrewResults = CacheBuilder.newBuilder().weakKeys().build();
 
     static
     {
@@ -60,7 +80,18 @@ public class BrewingRecipeRegistry {
      */
     public static boolean addRecipe(IBrewingRecipe recipe)
     {
-        return recipes.add(recipe);
+        boolean added = recipes.add(recipe);
+        invalidate();
+        return added;
+    }
+
+    /**
+     * Rebuilds the index on next use. Called when tags change, as ingredients may accept different items afterwards.
+     */
+    public static void invalidate()
+    {
+        index = null;
+        version++;
     }
 
     /**
@@ -72,9 +103,10 @@ public class BrewingRecipeRegistry {
         if (input.isEmpty() || input.getCount() != 1) return ItemStack.EMPTY;
         if (ingredient.isEmpty()) return ItemStack.EMPTY;
 
-        for (IBrewingRecipe recipe : recipes)
+        Index index = getIndex();
+        for (int i : index.candidates(index.byInput, input))
         {
-            ItemStack output = recipe.getOutput(input, ingredient);
+            ItemStack output = index.recipes[i].getOutput(input, ingredient);
             if (!output.isEmpty())
             {
                 return output;
@@ -100,15 +132,23 @@ public class BrewingRecipeRegistry {
     {
         if (ingredient.isEmpty()) return false;
 
+        // Brewing stands ask every tick, remember the answer until their contents change
+        CanBrewResult previous = canBrewResults.getIfPresent(inputs);
+        if (previous != null && previous.isFor(inputs, ingredient, inputIndexes))
+            return previous.canBrew;
+
+        boolean canBrew = false;
         for (int i : inputIndexes)
         {
             if (hasOutput(inputs.get(i), ingredient))
             {
-                return true;
+                canBrew = true;
+                break;
             }
         }
 
-        return false;
+        canBrewResults.put(inputs, new CanBrewResult(inputs, ingredient, inputIndexes, canBrew));
+        return canBrew;
     }
 
     /**
@@ -135,9 +175,10 @@ public class BrewingRecipeRegistry {
     {
         if (stack.isEmpty()) return false;
 
-        for (IBrewingRecipe recipe : recipes)
+        Index index = getIndex();
+        for (int i : index.candidates(index.byIngredient, stack))
         {
-            if (recipe.isIngredient(stack))
+            if (index.recipes[i].isIngredient(stack))
             {
                 return true;
             }
@@ -153,9 +194,10 @@ public class BrewingRecipeRegistry {
     {
         if (stack.getCount() != 1) return false;
 
-        for (IBrewingRecipe recipe : recipes)
+        Index index = getIndex();
+        for (int i : index.candidates(index.byInput, stack))
         {
-            if (recipe.isInput(stack))
+            if (index.recipes[i].isInput(stack))
             {
                 return true;
             }
@@ -170,4 +212,133 @@ public class BrewingRecipeRegistry {
     {
         return Collections.unmodifiableList(recipes);
     }
+
+    private static Index getIndex()
+    {
+        Index ret = index;
+        if (ret == null)
+        {
+            ret = new Index(recipes.toArray(new IBrewingRecipe[0]));
+            index = ret;
+        }
+        return ret;
+    }
+
+    private static class Index
+    {
+        private final IBrewingRecipe[] recipes;
+        private final Map<Item, int[]> byInput = new IdentityHashMap<>();
+        private final Map<Item, int[]> byIngredient = new IdentityHashMap<>();
+        /** Recipes that have to be tested for every item */
+        private final int[] unindexed;
+
+        private Index(IBrewingRecipe[] recipes)
+        {
+            this.recipes = recipes;
+            Map<Item, IntArrayList> inputs = new IdentityHashMap<>();
+            Map<Item, IntArrayList> ingredients = new IdentityHashMap<>();
+            IntArrayList unindexed = new IntArrayList();
+            for (int i = 0; i < recipes.length; i++)
+            {
+                IBrewingRecipe recipe = recipes[i];
+                // Subclasses may change what is accepted
+                if (recipe.getClass() == BrewingRecipe.class && isIndexable(((BrewingRecipe)recipe).getInput()) && isIndexable(((BrewingRecipe)recipe).getIngredient()))
+                {
+                    add(inputs, ((BrewingRecipe)recipe).getInput(), i);
+                    add(ingredients, ((BrewingRecipe)recipe).getIngredient(), i);
+                }
+                else
+                {
+                    unindexed.add(i);
+                }
+            }
+            this.unindexed = unindexed.toIntArray();
+            inputs.forEach((item, list) -> byInput.put(item, merge(list.toIntArray(), this.unindexed)));
+            ingredients.forEach((item, list) -> byIngredient.put(item, merge(list.toIntArray(), this.unindexed)));
+        }
+
+        private static boolean isIndexable(Ingredient ingredient)
+        {
+            // Without matching stacks, an ingredient only accepts empty stacks, which are never brewed
+            return RecipeIndex.isIndexable(ingredient) && ingredient.getMatchingStacks().length > 0;
+        }
+
+        private static void add(Map<Item, IntArrayList> map, Ingredient ingredient, int recipe)
+        {
+            for (ItemStack stack : ingredient.getMatchingStacks())
+            {
+                IntArrayList list = map.computeIfAbsent(stack.getItem(), item -> new IntArrayList());
+                if (list.isEmpty() || list.getInt(list.size() - 1) != recipe)
+                    list.add(recipe);
+            }
+        }
+
+        /**
+         * @return All recipes of both sorted arrays, in order
+         */
+        private static int[] merge(int[] a, int[] b)
+        {
+            int[] ret = new int[a.length + b.length];
+            int i = 0, j = 0, k = 0;
+            while (i < a.length && j < b.length)
+                ret[k++] = a[i] < b[j] ? a[i++] : b[j++];
+            while (i < a.length)
+                ret[k++] = a[i++];
+            while (j < b.length)
+                ret[k++] = b[j++];
+            return ret;
+        }
+
+        /**
+         * @return The recipes that may accept the stack, in the order they were added
+         */
+        private int[] candidates(Map<Item, int[]> map, ItemStack stack)
+        {
+            int[] ret = map.get(stack.getItem());
+            return ret != null ? ret : unindexed;
+        }
+    }
+
+    private static class CanBrewResult
+    {
+        private final int version;
+        private final ItemStack ingredient;
+        private final int ingredientCount;
+        private final int[] inputIndexes;
+        private final ItemStack[] inputs;
+        private final int[] inputCounts;
+        private final boolean canBrew;
+
+        private CanBrewResult(NonNullList<ItemStack> inputs, ItemStack ingredient, int[] inputIndexes, boolean canBrew)
+        {
+            this.version = BrewingRecipeRegistry.version;
+            this.ingredient = ingredient;
+            this.ingredientCount = ingredient.getCount();
+            this.inputIndexes = inputIndexes;
+            this.inputs = new ItemStack[inputIndexes.length];
+            this.inputCounts = new int[inputIndexes.length];
+            for (int i = 0; i < inputIndexes.length; i++)
+            {
+                this.inputs[i] = inputs.get(inputIndexes[i]);
+                this.inputCounts[i] = this.inputs[i].getCount();
+            }
+            this.canBrew = canBrew;
+        }
+
+        /**
+         * The same stacks with the same counts give the same result, as long as the recipes did not change
+         */
+        private boolean isFor(NonNullList<ItemStack> inputs, ItemStack ingredient, int[] inputIndexes)
+        {
+            if (version != BrewingRecipeRegistry.version || ingredient != this.ingredient || ingredient.getCount() != ingredientCount || !Arrays.equals(inputIndexes, this.inputIndexes))
+                return false;
+            for (int i = 0; i < inputIndexes.length; i++)
+            {
+                ItemStack stack = inputs.get(inputIndexes[i]);
+                if (stack != this.inputs[i] || stack.getCount() != inputCounts[i])
+                    return false;
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,240 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.capabilities;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import mcp.MethodsReturnNonnullByDefault;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Direction;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.LazyOptional;
+
+/**
+ * A cached reference to the capability of the tile entity at a position, for things that look at the same neighbor every tick,
+ * like hoppers, pipes and cables.
+ *
+ * A present capability is resolved once and reused until its {@link LazyOptional} is invalidated or the tile entity is removed or replaced.
+ * An absent one is only reused within the same game tick, since tile entities may start providing a capability at any time.
+ * Handles are shared: {@link #get} returns the same handle for the same world, position, side and capability to everyone asking,
+ * and forgets it once nobody asked for a while. Handles must only be used on the thread that ticks their world.
+ */
+@MethodsReturnNonnullByDefault
+@ParametersAreNonnullByDefault
+public final class BlockCapabilityCache<T>
+{
+    private static final long EXPIRY_MINUTES = 1;
+    private static final LoadingCache<World, LoadingCache<Key, BlockCapabilityCache<?>>> CACHES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<World, LoadingCache<Key, BlockCapabilityCache<?>>>()
+            {
+                @Override
+                public LoadingCache<Key, BlockCapabilityCache<?>> load(World world)
+                {
+                    return CacheBuilder.newBuilder()
+                            .expireAfterAccess(EXPIRY_MINUTES, TimeUnit.MINUTES)
+                            .build(new CacheLoader<Key, BlockCapabilityCache<?>>()
+                            {
+                                @Override
+                                public BlockCapabilityCache<?> load(Key key)
+                                {
+                                    return new BlockCapabilityCache<>(world, key);
+                                }
+                            });
+                }
+            });
+
+    private final World world;
+    private final Key key;
+
+    private boolean resolved;
+    private long resolvedTick;
+    private @Nullable TileEntity tileEntity;
+    private LazyOptional<T> capability = LazyOptional.empty();
+    private volatile boolean invalidated;
+
+    private BlockCapabilityCache(World world, Key key)
+    {
+        this.world = world;
+        this.key = key;
+    }
+
+    /**
+     * @param pos The position, copied if it is a {@link BlockPos.Mutable}. Immutable positions are used as they are, so callers
+     *            looking up the same position every tick should keep an immutable one around.
+     * @return The shared handle for the capability of the tile entity at the given position, seen from the given side
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BlockCapabilityCache<T> get(Capability<T> capability, World world, BlockPos pos, @Nullable Direction side)
+    {
+        return (BlockCapabilityCache<T>)CACHES.getUnchecked(world).getUnchecked(new Key(capability, pos instanceof BlockPos.Mutable ? pos.toImmutable() : pos, side));
+    }
+
+    /**
+     * Forgets all handles of the world, called when it unloads.
+     */
+    public static void unloadWorld(World world)
+    {
+        CACHES.invalidate(world);
+    }
+
+    /**
+     * @return The capability, the same instance as long as it stays valid. Empty if there is no tile entity providing it,
+     *         or if the position is not loaded.
+     */
+    public LazyOptional<T> getCapability()
+    {
+        if (!world.isAreaLoaded(key.pos, 0))
+        {
+            // Never load chunks, just forget what was there
+            reset();
+            return LazyOptional.empty();
+        }
+        if (!resolved || !isValid())
+            resolve();
+        return capability;
+    }
+
+    /**
+     * @return The tile entity the capability was resolved from, if any
+     */
+    @Nullable
+    public TileEntity getTileEntity()
+    {
+        getCapability();
+        return tileEntity;
+    }
+
+    /**
+     * @return The tile entity the capability returned by the last {@link #getCapability()} call was resolved from, without checking
+     *         again whether it is still there. Saves a second check when both are needed right after each other.
+     */
+    @Nullable
+    public TileEntity getResolvedTileEntity()
+    {
+        return tileEntity;
+    }
+
+    public World getWorld()
+    {
+        return world;
+    }
+
+    public BlockPos getPos()
+    {
+        return key.pos;
+    }
+
+    @Nullable
+    public Direction getSide()
+    {
+        return key.side;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Capability<T> getCapabilityType()
+    {
+        return (Capability<T>)key.capability;
+    }
+
+    private boolean isValid()
+    {
+        if (invalidated)
+            return false;
+        if (tileEntity == null)
+            return world.getTileEntity(key.pos) == null;
+        if (tileEntity.isRemoved())
+            return false;
+        // A present capability is invalidated when its chunk unloads, an absent one has nothing to listen to and may become
+        // present at any time, like when a machine changes its side configuration or a multiblock forms, so it is asked again next tick
+        return capability.isPresent() || (resolvedTick == world.getGameTime() && world.getTileEntity(key.pos) == tileEntity);
+    }
+
+    private void resolve()
+    {
+        resolved = true;
+        resolvedTick = world.getGameTime();
+        invalidated = false;
+        tileEntity = world.getBlockState(key.pos).hasTileEntity() ? world.getTileEntity(key.pos) : null;
+        if (tileEntity == null)
+        {
+            capability = LazyOptional.empty();
+            return;
+        }
+        LazyOptional<T> current = tileEntity.getCapability(getCapabilityType(), key.side);
+        capability = current;
+        // An absent optional calls its listeners right away, and there is nothing to be invalidated, isValid checks the tile entity instead
+        if (current.isPresent())
+        {
+            current.addListener(invalid -> {
+                // Listeners of capabilities resolved earlier stay registered, only the current one counts
+                if (invalid == capability)
+                    invalidated = true;
+            });
+        }
+    }
+
+    private void reset()
+    {
+        resolved = false;
+        tileEntity = null;
+        capability = LazyOptional.empty();
+    }
+
+    private static final class Key
+    {
+        private final Capability<?> capability;
+        private final BlockPos pos;
+        private final @Nullable Direction side;
+        private final int hash;
+
+        private Key(Capability<?> capability, BlockPos pos, @Nullable Direction side)
+        {
+            this.capability = capability;
+            this.pos = pos;
+            this.side = side;
+            // Computed once by hand, this key is created for every lookup
+            this.hash = 31 * (31 * capability.getId() + pos.hashCode()) + (side == null ? 0 : side.ordinal() + 1);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key)o;
+            return hash == other.hash && capability == other.capability && side == other.side && pos.equals(other.pos);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
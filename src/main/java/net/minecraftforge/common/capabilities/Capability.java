@@ -90,6 +90,12 @@ public class Capability<T>
      */
     public String getName() { return name; }
 
+    /**
+     * @return The dense numeric id assigned to this capability by the {@link CapabilityManager}.
+     * Ids are assigned in registration order starting at zero, and are only stable for the current session.
+     */
+    public int getId() { return id; }
+
     /**
      * @return An instance of the default storage handler. You can safely use this store your default implementation in NBT.
      */
@@ -144,12 +150,14 @@ public class Capability<T>
 
     // INTERNAL
     private final String name;
+    private final int id;
     private final IStorage<T> storage;
     private final Callable<? extends T> factory;
 
-    Capability(String name, IStorage<T> storage, Callable<? extends T> factory)
+    Capability(String name, int id, IStorage<T> storage, Callable<? extends T> factory)
     {
         this.name = name;
+        this.id = id;
         this.storage = storage;
         this.factory = factory;
     }
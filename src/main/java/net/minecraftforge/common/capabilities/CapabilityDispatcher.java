@@ -22,8 +22,10 @@ package net.minecraftforge.common.capabilities;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import com.google.common.collect.Lists;
 
@@ -43,6 +45,9 @@ import net.minecraftforge.common.util.LazyOptional;
  * our handlers using normal if statements.
  *
  * Internally the handlers are baked into arrays for fast iteration.
+ * If any of the providers implement {@link IDeclaredCapabilityProvider} a small lookup
+ * table keyed by capability id and side is filled in as capabilities are queried,
+ * so only the providers that could answer a query are asked.
  * The ResourceLocations will be used for the NBT Key when serializing.
  */
 @ParametersAreNonnullByDefault
@@ -53,6 +58,12 @@ public final class CapabilityDispatcher implements INBTSerializable<CompoundNBT>
     private INBTSerializable<INBT>[] writers;
     private String[] names;
     private final List<Runnable> listeners;
+    private static final int SIDES = Direction.values().length + 1; // +1 for the null side
+    private static final Candidates NO_PROVIDERS = new Candidates(new int[0]);
+    private static final Lookup NO_LOOKUP = new Lookup(new int[0], new Candidates[0]);
+    private final boolean declared; // Whether any provider declared its capabilities, so a lookup table is worth building
+    private volatile Lookup lookup = NO_LOOKUP; // Only holds the capability and side pairs queried so far
+    private Candidates all;
 
     public CapabilityDispatcher(Map<ResourceLocation, ICapabilityProvider> list, List<Runnable> listeners)
     {
@@ -91,25 +102,112 @@ public final class CapabilityDispatcher implements INBTSerializable<CompoundNBT>
         caps = lstCaps.toArray(new ICapabilityProvider[lstCaps.size()]);
         writers = lstWriters.toArray(new INBTSerializable[lstWriters.size()]);
         names = lstNames.toArray(new String[lstNames.size()]);
+
+        boolean declared = false;
+        for (ICapabilityProvider c : caps)
+            declared |= c instanceof IDeclaredCapabilityProvider;
+        this.declared = declared;
+    }
+
+    /**
+     * Gets the providers that may answer the given capability and side, asking the declared providers the first time the pair is queried.
+     * Dispatchers are built for every stack and tile entity with attached capabilities, most of which are only ever queried for a few
+     * capabilities, so only the queried pairs are kept instead of a slot for every known capability and side.
+     */
+    private Candidates getCandidates(Capability<?> cap, @Nullable Direction side)
+    {
+        int key = cap.getId() * SIDES + (side == null ? SIDES - 1 : side.ordinal());
+        Lookup current = lookup;
+        int pos = Arrays.binarySearch(current.keys, key);
+        if (pos >= 0)
+        {
+            return current.values[pos];
+        }
+
+        int[] buf = new int[caps.length];
+        int count = 0;
+        for (int x = 0; x < caps.length; x++)
+        {
+            if (!(caps[x] instanceof IDeclaredCapabilityProvider) || ((IDeclaredCapabilityProvider)caps[x]).exposesCapability(cap, side))
+                buf[count++] = x;
+        }
+        Candidates ret;
+        if (count == 0)
+        {
+            ret = NO_PROVIDERS;
+        }
+        else if (count == caps.length)
+        {
+            if (all == null)
+                all = new Candidates(buf);
+            ret = all;
+        }
+        else
+        {
+            ret = new Candidates(Arrays.copyOf(buf, count));
+        }
+
+        // Copy on write, a racing thread may drop this entry, in which case it is computed again on the next query
+        int insert = -pos - 1;
+        int size = current.keys.length;
+        int[] keys = new int[size + 1];
+        Candidates[] values = new Candidates[size + 1];
+        System.arraycopy(current.keys, 0, keys, 0, insert);
+        System.arraycopy(current.values, 0, values, 0, insert);
+        keys[insert] = key;
+        values[insert] = ret;
+        System.arraycopy(current.keys, insert, keys, insert + 1, size - insert);
+        System.arraycopy(current.values, insert, values, insert + 1, size - insert);
+        lookup = new Lookup(keys, values);
+        return ret;
+    }
+
+    private static final class Candidates
+    {
+        private final int[] indexes;
+
+        private Candidates(int[] indexes)
+        {
+            this.indexes = indexes;
+        }
+    }
+
+    /**
+     * Sorted capability and side keys with their candidates, never modified once published.
+     */
+    private static final class Lookup
+    {
+        private final int[] keys;
+        private final Candidates[] values;
+
+        private Lookup(int[] keys, Candidates[] values)
+        {
+            this.keys = keys;
+            this.values = values;
+        }
     }
 
 
     @Override
     public <T> LazyOptional<T> getCapability(Capability<T> cap, @Nullable Direction side)
     {
-        for (ICapabilityProvider c : caps)
+        //noinspection ConstantConditions
+        if (declared && cap != null)
         {
-            LazyOptional<T> ret = c.getCapability(cap, side);
-            //noinspection ConstantConditions
-            if (ret == null)
+            for (int idx : getCandidates(cap, side).indexes)
             {
-                throw new RuntimeException(
-                        String.format(
-                                "Provider %s.getCapability() returned null; return LazyOptional.empty() instead!",
-                                c.getClass().getTypeName()
-                        )
-                );
+                LazyOptional<T> ret = query(caps[idx], cap, side);
+                if (ret.isPresent())
+                {
+                    return ret;
+                }
             }
+            return LazyOptional.empty();
+        }
+
+        for (ICapabilityProvider c : caps)
+        {
+            LazyOptional<T> ret = query(c, cap, side);
             if (ret.isPresent())
             {
                 return ret;
@@ -118,6 +216,22 @@ public final class CapabilityDispatcher implements INBTSerializable<CompoundNBT>
         return LazyOptional.empty();
     }
 
+    private static <T> LazyOptional<T> query(ICapabilityProvider c, Capability<T> cap, @Nullable Direction side)
+    {
+        LazyOptional<T> ret = c.getCapability(cap, side);
+        //noinspection ConstantConditions
+        if (ret == null)
+        {
+            throw new RuntimeException(
+                    String.format(
+                            "Provider %s.getCapability() returned null; return LazyOptional.empty() instead!",
+                            c.getClass().getTypeName()
+                    )
+            );
+        }
+        return ret;
+    }
+
     @Override
     public CompoundNBT serializeNBT()
     {
@@ -145,7 +259,39 @@ public final class CapabilityDispatcher implements INBTSerializable<CompoundNBT>
     {                                                        // Only compares serializeable caps.
         if (other == null) return this.writers.length == 0;  // Done this way so we can do some pre-checks before doing the costly NBT serialization and compare
         if (this.writers.length == 0) return other.writers.length == 0;
-        return this.serializeNBT().equals(other.serializeNBT());
+        if (this.writers.length != other.writers.length) return false;
+
+        for (int x = 0; x < writers.length; x++)
+        {
+            int y = x;
+            if (!names[x].equals(other.names[y]))
+            {
+                y = indexOf(other.names, names[x]);
+                if (y == -1) return false;
+            }
+            if (!areCompatible(writers[x], other.writers[y]))
+                return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean areCompatible(INBTSerializable<INBT> a, INBTSerializable<INBT> b)
+    {
+        if (a == b) return true;
+        if (a instanceof ICapabilityComparable && a.getClass() == b.getClass())
+            return ((ICapabilityComparable)a).isContentEqual((ICapabilityComparable)b);
+        return Objects.equals(a.serializeNBT(), b.serializeNBT()); // Fallback, same as comparing the full tag but one provider at a time.
+    }
+
+    private static int indexOf(String[] names, String name)
+    {
+        for (int x = 0; x < names.length; x++)
+        {
+            if (names[x].equals(name))
+                return x;
+        }
+        return -1;
     }
 
     public void invalidate()
@@ -23,6 +23,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
@@ -72,15 +73,28 @@ public enum CapabilityManager
                 throw new IllegalArgumentException("Cannot register a capability implementation multiple times : "+ realName);
             }
 
-            cap = new Capability<>(realName, storage, factory);
+            cap = new Capability<>(realName, providers.size(), storage, factory);
             providers.put(realName, cap);
+            Capability<?>[] ids = Arrays.copyOf(byId, byId.length + 1);
+            ids[cap.getId()] = cap;
+            byId = ids;
         }
 
         callbacks.getOrDefault(realName, Collections.emptyList()).forEach(func -> func.apply(cap));
     }
 
+    /**
+     * @return The number of capabilities registered so far. Every registered capability has an id
+     * in the range [0, count), see {@link Capability#getId()}.
+     */
+    public int getCapabilityCount()
+    {
+        return byId.length;
+    }
+
     // INTERNAL
     private final IdentityHashMap<String, Capability<?>> providers = new IdentityHashMap<>();
+    private volatile Capability<?>[] byId = new Capability<?>[0];
     private volatile IdentityHashMap<String, List<Function<Capability<?>, Object>>> callbacks;
     public void injectCapabilities(List<ModFileScanData> data)
     {
@@ -19,6 +19,8 @@
 
 package net.minecraftforge.common.capabilities;
 
+import java.util.function.Supplier;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -36,20 +38,68 @@ public abstract class CapabilityProvider<B extends CapabilityProvider<B>> implem
     private @Nullable CapabilityDispatcher capabilities;
     private boolean valid = true;
 
+    private final boolean isLazy;
+    private boolean initialized = false;
+    private @Nullable Supplier<ICapabilityProvider> lazyParentProvider = null;
+    private @Nullable CompoundNBT lazyData = null;
+
     protected CapabilityProvider(Class<B> baseClass)
+    {
+        this(baseClass, false);
+    }
+
+    /**
+     * @param isLazy If true, the capabilities are not gathered until they are first needed, by {@link #getCapability},
+     *               serialization or comparison. Until then, deserialized capability data is kept as is.
+     *               Meant for objects that are created in large numbers and rarely have their capabilities queried, like {@link net.minecraft.item.ItemStack}.
+     */
+    protected CapabilityProvider(Class<B> baseClass, boolean isLazy)
     {
         this.baseClass = baseClass;
+        this.isLazy = isLazy;
     }
 
     protected final void gatherCapabilities() { gatherCapabilities(null); }
 
     protected final void gatherCapabilities(@Nullable ICapabilityProvider parent)
+    {
+        gatherCapabilitiesFrom(() -> parent);
+    }
+
+    /**
+     * @param parent Supplies the parent provider, for lazy providers it is only called once the capabilities are actually gathered
+     */
+    protected final void gatherCapabilitiesFrom(Supplier<ICapabilityProvider> parent)
+    {
+        if (isLazy && !initialized)
+        {
+            lazyParentProvider = parent;
+            return;
+        }
+        doGatherCapabilities(parent.get());
+    }
+
+    private void doGatherCapabilities(@Nullable ICapabilityProvider parent)
     {
         this.capabilities = ForgeEventFactory.gatherCapabilities(baseClass, this, parent);
+        this.initialized = true;
     }
 
     protected final @Nullable CapabilityDispatcher getCapabilities()
     {
+        if (isLazy && !initialized && lazyParentProvider != null) // Still null if the capabilities were never gathered, like for the empty ItemStack
+        {
+            Supplier<ICapabilityProvider> parent = lazyParentProvider;
+            CompoundNBT data = lazyData;
+            // Mark as initialized before firing the event, so handlers and providers that query this object while the
+            // capabilities are being gathered see none, instead of starting the gathering over and over
+            initialized = true;
+            lazyParentProvider = null;
+            lazyData = null;
+            doGatherCapabilities(parent.get());
+            if (data != null)
+                deserializeCaps(data);
+        }
         return this.capabilities;
     }
 
@@ -80,6 +130,9 @@ public abstract class CapabilityProvider<B extends CapabilityProvider<B>> implem
 
     protected final @Nullable CompoundNBT serializeCaps()
     {
+        if (isLazy && !initialized)
+            return lazyData == null ? null : lazyData.copy(); // Nothing could have changed, no need to gather just to write the same data back
+
         final CapabilityDispatcher disp = getCapabilities();
         if (disp != null)
         {
@@ -90,6 +143,12 @@ public abstract class CapabilityProvider<B extends CapabilityProvider<B>> implem
 
     protected final void deserializeCaps(CompoundNBT tag)
     {
+        if (isLazy && !initialized)
+        {
+            lazyData = tag.copy(); // The caller's tag may be modified or reused, like the source NBT of an ItemStack
+            return;
+        }
+
         final CapabilityDispatcher disp = getCapabilities();
         if (disp != null)
         {
@@ -100,6 +159,8 @@ public abstract class CapabilityProvider<B extends CapabilityProvider<B>> implem
     protected void invalidateCaps()
     {
         this.valid = false;
+        if (isLazy && !initialized)
+            return; // No one could have a reference to capabilities that were never created
         final CapabilityDispatcher disp = getCapabilities();
         if (disp != null)
             disp.invalidate();
@@ -114,7 +175,9 @@ public abstract class CapabilityProvider<B extends CapabilityProvider<B>> implem
     @Nonnull
     public <T> LazyOptional<T> getCapability(@Nonnull Capability<T> cap, @Nullable Direction side)
     {
+        if (!valid)
+            return LazyOptional.empty();
         final CapabilityDispatcher disp = getCapabilities();
-        return !valid || disp == null ? LazyOptional.empty() : disp.getCapability(cap, side);
+        return disp == null ? LazyOptional.empty() : disp.getCapability(cap, side);
     }
 }
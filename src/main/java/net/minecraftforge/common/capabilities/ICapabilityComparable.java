@@ -0,0 +1,42 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.capabilities;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Optional contract for serializable capability providers attached through the AttachCapabilitiesEvent.
+ *
+ * When two ItemStacks are compared, {@link CapabilityDispatcher#areCompatible(CapabilityDispatcher)}
+ * normally serializes every provider to NBT and compares the results. Providers implementing this
+ * interface are instead compared directly, which avoids building and walking the NBT trees.
+ *
+ * The result MUST be the same as comparing the serialized NBT of both providers.
+ *
+ * @param <T> The type of the provider, only instances of the exact same class will be compared.
+ */
+public interface ICapabilityComparable<T extends ICapabilityComparable<T>>
+{
+    /**
+     * @param other Another instance of the same class, attached under the same name.
+     * @return True if both instances would serialize to equal NBT.
+     */
+    boolean isContentEqual(@Nonnull T other);
+}
@@ -0,0 +1,50 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.capabilities;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.minecraft.util.Direction;
+
+/**
+ * An optional extension of {@link ICapabilityProvider} that lets a provider declare up front
+ * which capabilities it can ever expose.
+ *
+ * When a {@link CapabilityDispatcher} is built from providers implementing this interface it keeps
+ * a per capability and side lookup table, filled in as capabilities are first queried, so that
+ * {@link CapabilityDispatcher#getCapability} only queries the providers that could answer, and
+ * repeated misses cost nothing.
+ * Providers that do not implement this interface are queried for every capability, as before.
+ */
+public interface IDeclaredCapabilityProvider extends ICapabilityProvider
+{
+    /**
+     * Called once per capability and side by the owning dispatcher, which keeps the answer, so it MUST NOT change afterwards.
+     * Concurrent queries may rarely call it again for the same pair.
+     * Returning true for a capability that is never actually provided is safe, returning false
+     * for one that is provided will hide it.
+     *
+     * @param cap The capability being queried
+     * @param side The side being queried, <strong>CAN BE NULL</strong>
+     * @return True if {@link #getCapability(Capability, Direction)} may return a present value for this capability and side.
+     */
+    boolean exposesCapability(@Nonnull Capability<?> cap, @Nullable Direction side);
+}
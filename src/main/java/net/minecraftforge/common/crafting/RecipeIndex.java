@@ -0,0 +1,212 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.crafting;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.BlastingRecipe;
+import net.minecraft.item.crafting.CampfireCookingRecipe;
+import net.minecraft.item.crafting.FurnaceRecipe;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.item.crafting.IRecipeType;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraft.item.crafting.ShapedRecipe;
+import net.minecraft.item.crafting.ShapelessRecipe;
+import net.minecraft.item.crafting.SmokingRecipe;
+import net.minecraft.item.crafting.StonecuttingRecipe;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.World;
+
+/**
+ * Speeds up {@link net.minecraft.item.crafting.RecipeManager#getRecipe(IRecipeType, IInventory, World)} by only testing the recipes
+ * that can match the items in the inventory.
+ *
+ * For each recipe one of its ingredients is picked as key, and the recipe is indexed under every item that ingredient accepts.
+ * A lookup only tests the recipes indexed under the items in the inventory, in their original order, so the first matching
+ * recipe is the same as without the index. Recipes whose matching rules are not known, like special or modded recipes, and
+ * recipes without an ingredient whose items are known, are always tested.
+ *
+ * The index of a recipe type is built on its first lookup after every reload. Additionally the last recipe found for an inventory
+ * is remembered, and tested first the next time.
+ */
+public class RecipeIndex
+{
+    /**
+     * Recipes that can only match if every one of their ingredients matches a stack in the inventory
+     */
+    private static final Set<Class<?>> INDEXED_RECIPES = ImmutableSet.of(ShapedRecipe.class, ShapelessRecipe.class, FurnaceRecipe.class,
+            BlastingRecipe.class, SmokingRecipe.class, CampfireCookingRecipe.class, StonecuttingRecipe.class);
+
+    // Keyed by the recipe map of a type, which is replaced on every reload
+    private static final LoadingCache<Map<ResourceLocation, ? extends IRecipe<?>>, TypeIndex> INDEXES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(TypeIndex::new));
+    private static final Cache<IInventory, IRecipe<?>> LAST_MATCHES = CacheBuilder.newBuilder()
+            .weakKeys()
+            .weakValues()
+            .build();
+    private static final ThreadLocal<BitSet[]> CANDIDATES = ThreadLocal.withInitial(() -> new BitSet[1]);
+
+    @SuppressWarnings("unchecked")
+    public static <C extends IInventory, T extends IRecipe<C>> Optional<T> getRecipe(IRecipeType<T> type, Map<ResourceLocation, IRecipe<C>> recipes, C inv, World world)
+    {
+        IRecipe<?> last = LAST_MATCHES.getIfPresent(inv);
+        if (last != null && recipes.get(last.getId()) == last)
+        {
+            Optional<T> match = type.matches((IRecipe<C>)last, world, inv);
+            if (match.isPresent())
+                return match;
+        }
+
+        TypeIndex index = INDEXES.getUnchecked(recipes);
+
+        // Borrow the candidate set of this thread, a recipe may look up another one while it is being tested
+        BitSet[] holder = CANDIDATES.get();
+        BitSet candidates = holder[0] != null ? holder[0] : new BitSet(index.recipes.length);
+        holder[0] = null;
+        try
+        {
+            index.collectCandidates(inv, candidates);
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1))
+            {
+                IRecipe<C> recipe = (IRecipe<C>)index.recipes[i];
+                Optional<T> match = type.matches(recipe, world, inv);
+                if (match.isPresent())
+                {
+                    LAST_MATCHES.put(inv, recipe);
+                    return match;
+                }
+            }
+            return Optional.empty();
+        }
+        finally
+        {
+            candidates.clear();
+            holder[0] = candidates;
+        }
+    }
+
+    /**
+     * Rebuilds all indexes on their next use, needed when the items accepted by ingredients changed, like after a tag reload.
+     */
+    public static void invalidate()
+    {
+        INDEXES.invalidateAll();
+        LAST_MATCHES.invalidateAll();
+    }
+
+    /**
+     * @return True if the ingredient only accepts stacks of the items in its matching stacks, so it can be indexed by item
+     */
+    public static boolean isIndexable(Ingredient ingredient)
+    {
+        if (ingredient.isVanilla() || ingredient.getClass() == NBTIngredient.class)
+            return true;
+        if (ingredient.getClass() == CompoundIngredient.class)
+            return ((CompoundIngredient)ingredient).getChildren().stream().allMatch(RecipeIndex::isIndexable);
+        return false;
+    }
+
+    private static class TypeIndex
+    {
+        private final IRecipe<?>[] recipes;
+        private final Map<Item, int[]> recipesByItem = new IdentityHashMap<>();
+        private final int[] unindexed;
+
+        private TypeIndex(Map<ResourceLocation, ? extends IRecipe<?>> recipes)
+        {
+            this.recipes = recipes.values().toArray(new IRecipe<?>[0]);
+
+            Map<Item, IntArrayList> byItem = new IdentityHashMap<>();
+            IntArrayList unindexed = new IntArrayList();
+            for (int i = 0; i < this.recipes.length; i++)
+            {
+                Ingredient key = getKey(this.recipes[i]);
+                if (key == null)
+                {
+                    unindexed.add(i);
+                    continue;
+                }
+                for (ItemStack stack : key.getMatchingStacks())
+                {
+                    IntArrayList list = byItem.computeIfAbsent(stack.getItem(), item -> new IntArrayList());
+                    if (list.isEmpty() || list.getInt(list.size() - 1) != i)
+                        list.add(i);
+                }
+            }
+            byItem.forEach((item, list) -> recipesByItem.put(item, list.toIntArray()));
+            this.unindexed = unindexed.toIntArray();
+        }
+
+        /**
+         * @return The ingredient accepting the fewest items among those that have to match, or null if there is none
+         */
+        private static Ingredient getKey(IRecipe<?> recipe)
+        {
+            if (!INDEXED_RECIPES.contains(recipe.getClass()))
+                return null;
+            Ingredient key = null;
+            for (Ingredient ingredient : recipe.getIngredients())
+            {
+                // Empty ingredients only match empty slots, they do not tell which items are needed
+                if (!isIndexable(ingredient) || ingredient.getMatchingStacks().length == 0)
+                    continue;
+                if (key == null || ingredient.getMatchingStacks().length < key.getMatchingStacks().length)
+                    key = ingredient;
+            }
+            return key;
+        }
+
+        private void collectCandidates(IInventory inv, BitSet candidates)
+        {
+            for (int i : unindexed)
+                candidates.set(i);
+
+            Item previous = null;
+            for (int slot = 0; slot < inv.getSizeInventory(); slot++)
+            {
+                ItemStack stack = inv.getStackInSlot(slot);
+                if (stack.isEmpty() || stack.getItem() == previous)
+                    continue;
+                previous = stack.getItem();
+                int[] indexed = recipesByItem.get(previous);
+                if (indexed != null)
+                {
+                    for (int i : indexed)
+                        candidates.set(i);
+                }
+            }
+        }
+    }
+}
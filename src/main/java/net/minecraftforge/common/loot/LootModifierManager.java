@@ -25,12 +25,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.annotation.Nullable;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.item.ItemStack;
+import net.minecraft.loot.LootContext;
+import net.minecraft.loot.LootParameters;
 import net.minecraft.loot.LootSerializers;
+import net.minecraft.loot.conditions.BlockStateProperty;
 import net.minecraft.loot.conditions.ILootCondition;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
@@ -55,7 +69,11 @@ public class LootModifierManager extends JsonReloadListener {
     public static final Logger LOGGER = LogManager.getLogger();
     private static final Gson GSON_INSTANCE = LootSerializers.func_237387_b_().create();
 
+    private static final Field BLOCK_STATE_PROPERTY_BLOCK = findField(BlockStateProperty.class, Block.class);
+    private static final int[] NONE = new int[0];
+
     private Map<ResourceLocation, IGlobalLootModifier> registeredLootModifiers = ImmutableMap.of();
+    private Dispatch dispatch = new Dispatch(ImmutableMap.of());
     private static final String folder = "loot_modifiers";
     
     public LootModifierManager() {
@@ -121,6 +139,7 @@ public class LootModifierManager extends JsonReloadListener {
         });
         ImmutableMap<ResourceLocation, IGlobalLootModifier> immutablemap = builder.build();
         this.registeredLootModifiers = immutablemap;
+        this.dispatch = new Dispatch(immutablemap);
     }
 
     private IGlobalLootModifier deserializeModifier(ResourceLocation location, JsonElement element) {
@@ -151,4 +170,157 @@ public class LootModifierManager extends JsonReloadListener {
         return registeredLootModifiers.values();
     }
 
+    /**
+     * Applies the loot modifiers in layered order, skipping those whose conditions can not match the
+     * {@linkplain LootContext#getQueriedLootTableId() loot table} or block being rolled.
+     * @return modified loot drops
+     */
+    public List<ItemStack> modifyLoot(List<ItemStack> generatedLoot, LootContext context) {
+        return dispatch.apply(generatedLoot, context);
+    }
+
+    /**
+     * How often each loot modifier was applied, and how often it was skipped because it could not match, since the last reload.
+     * @return counts per modifier in layered order
+     */
+    public Map<ResourceLocation, DispatchStats> getDispatchStats() {
+        return dispatch.getStats();
+    }
+
+    @Nullable
+    private static Field findField(Class<?> owner, Class<?> type) {
+        for (Field field : owner.getDeclaredFields()) {
+            if (field.getType() == type) {
+                field.setAccessible(true);
+                return field;
+            }
+        }
+        LOGGER.warn("Could not find {} field of {}, loot modifiers will not be dispatched by it", type.getSimpleName(), owner.getName());
+        return null;
+    }
+
+    public static class DispatchStats {
+        private final long applied;
+        private final long skipped;
+
+        private DispatchStats(long applied, long skipped) {
+            this.applied = applied;
+            this.skipped = skipped;
+        }
+
+        /**
+         * @return how often the modifier was given a roll, it may still not have changed anything due to its conditions
+         */
+        public long getApplied() {
+            return applied;
+        }
+
+        /**
+         * @return how often the modifier was not given a roll, as its conditions pin another loot table or block
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+    }
+
+    /**
+     * Index of the loot modifiers by the loot table or block their conditions require.
+     * Modifiers are kept in their layered order by their position, all lists of positions are sorted.
+     */
+    private static class Dispatch {
+        private final ResourceLocation[] names;
+        private final IGlobalLootModifier[] modifiers;
+        private final int[] generic;
+        private final Map<ResourceLocation, int[]> byLootTable = new HashMap<>();
+        private final Map<Block, int[]> byBlock = new IdentityHashMap<>();
+        private final LongAdder rolls = new LongAdder();
+        private final LongAdder[] applied;
+
+        private Dispatch(Map<ResourceLocation, IGlobalLootModifier> modifiers) {
+            this.names = modifiers.keySet().toArray(new ResourceLocation[0]);
+            this.modifiers = modifiers.values().toArray(new IGlobalLootModifier[0]);
+            this.applied = new LongAdder[this.modifiers.length];
+
+            IntArrayList generic = new IntArrayList();
+            Map<ResourceLocation, IntArrayList> byLootTable = new HashMap<>();
+            Map<Block, IntArrayList> byBlock = new IdentityHashMap<>();
+            for (int i = 0; i < this.modifiers.length; i++) {
+                this.applied[i] = new LongAdder();
+                ResourceLocation lootTable = null;
+                Block block = null;
+                // Conditions of a LootModifier all have to pass, any one pinning the loot table or block is enough
+                if (this.modifiers[i] instanceof LootModifier) {
+                    for (ILootCondition condition : ((LootModifier)this.modifiers[i]).conditions) {
+                        if (condition instanceof LootTableIdCondition)
+                            lootTable = ((LootTableIdCondition)condition).getTargetLootTableId();
+                        else if (condition instanceof BlockStateProperty && block == null)
+                            block = getBlock((BlockStateProperty)condition);
+                    }
+                }
+                if (lootTable != null)
+                    byLootTable.computeIfAbsent(lootTable, k -> new IntArrayList()).add(i);
+                else if (block != null)
+                    byBlock.computeIfAbsent(block, k -> new IntArrayList()).add(i);
+                else
+                    generic.add(i);
+            }
+            this.generic = generic.toIntArray();
+            byLootTable.forEach((k, v) -> this.byLootTable.put(k, v.toIntArray()));
+            byBlock.forEach((k, v) -> this.byBlock.put(k, v.toIntArray()));
+        }
+
+        @Nullable
+        private static Block getBlock(BlockStateProperty condition) {
+            if (BLOCK_STATE_PROPERTY_BLOCK == null)
+                return null;
+            try {
+                return (Block)BLOCK_STATE_PROPERTY_BLOCK.get(condition);
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        private List<ItemStack> apply(List<ItemStack> generatedLoot, LootContext context) {
+            if (modifiers.length == 0)
+                return generatedLoot;
+            rolls.increment();
+
+            // The same id LootTableIdCondition tests
+            int[] table = byLootTable.getOrDefault(context.getQueriedLootTableId(), NONE);
+            int[] block = NONE;
+            if (!byBlock.isEmpty()) {
+                BlockState state = context.get(LootParameters.BLOCK_STATE);
+                if (state != null)
+                    block = byBlock.getOrDefault(state.getBlock(), NONE);
+            }
+
+            // Merge the three sorted lists, so the modifiers are applied in layered order
+            int g = 0, t = 0, b = 0;
+            while (g < generic.length || t < table.length || b < block.length) {
+                int next = Integer.MAX_VALUE;
+                if (g < generic.length) next = generic[g];
+                if (t < table.length && table[t] < next) next = table[t];
+                if (b < block.length && block[b] < next) next = block[b];
+
+                if (g < generic.length && generic[g] == next) g++;
+                else if (t < table.length && table[t] == next) t++;
+                else b++;
+
+                applied[next].increment();
+                generatedLoot = modifiers[next].apply(generatedLoot, context);
+            }
+            return generatedLoot;
+        }
+
+        private Map<ResourceLocation, DispatchStats> getStats() {
+            long total = rolls.sum();
+            ImmutableMap.Builder<ResourceLocation, DispatchStats> builder = ImmutableMap.builder();
+            for (int i = 0; i < names.length; i++) {
+                long count = applied[i].sum();
+                builder.put(names[i], new DispatchStats(count, Math.max(0, total - count)));
+            }
+            return builder.build();
+        }
+    }
+
 }
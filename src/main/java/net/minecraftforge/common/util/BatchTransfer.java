@@ -0,0 +1,223 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.Arrays;
+
+/**
+ * Moves a resource from many sources to many sinks in one planned operation, the shared core of
+ * {@link net.minecraftforge.energy.EnergyTransfer} and {@link net.minecraftforge.fluids.capability.FluidTransfer}.
+ * The handler calls are made through an {@link Access}, everything else is the same for every kind of resource.
+ * <p>
+ * A transfer first asks every source and sink once how much it could move and splits the amount evenly over both sides
+ * with a {@link TransferDistribution}. It then commits that plan sink by sink: each sink is given what the sources can
+ * still provide of their planned share, and only the amount the sink accepted is taken from the sources.
+ * <p>
+ * Nothing is ever taken from a source without a sink to accept it, so nothing has to be given back to sources that may
+ * not accept it. If a sink accepts less than it simulated, the rest of the plan is offered to the other sinks.
+ * Only a source that provides less than it has just simulated can make the sinks receive more than was taken.
+ * Instances are not thread safe.
+ *
+ * @param <H> The handler type of the sources and sinks
+ * @param <R> What is moved, passed to every handler call, for example the fluid. Unused for energy.
+ */
+public class BatchTransfer<H, R>
+{
+    /**
+     * The calls to move the resource out of and into a handler, both returning the amount that was (or would have been,
+     * if simulated) moved.
+     */
+    public interface Access<H, R>
+    {
+        int extract(H source, R resource, int amount, boolean simulate);
+
+        int insert(H sink, R resource, int amount, boolean simulate);
+    }
+
+    private final Access<H, R> access;
+    private final TransferDistribution distribution = new TransferDistribution();
+    private Object[] sources = new Object[8];
+    private Object[] sinks = new Object[8];
+    private int sourceCount;
+    private int sinkCount;
+    private int[] offered = new int[8];
+    private int[] taken = new int[8];
+    private int[] demanded = new int[8];
+    private int[] given = new int[8];
+    /** First source that may still have part of its planned share left, while committing */
+    private int cursor;
+
+    public BatchTransfer(Access<H, R> access)
+    {
+        this.access = access;
+    }
+
+    public void addSource(H source)
+    {
+        if (sourceCount == sources.length)
+        {
+            sources = Arrays.copyOf(sources, sourceCount * 2);
+            offered = new int[sources.length];
+            taken = new int[sources.length];
+        }
+        sources[sourceCount++] = source;
+    }
+
+    public void addSink(H sink)
+    {
+        if (sinkCount == sinks.length)
+        {
+            sinks = Arrays.copyOf(sinks, sinkCount * 2);
+            demanded = new int[sinks.length];
+            given = new int[sinks.length];
+        }
+        sinks[sinkCount++] = sink;
+    }
+
+    public int getSourceCount()
+    {
+        return sourceCount;
+    }
+
+    public int getSinkCount()
+    {
+        return sinkCount;
+    }
+
+    /**
+     * Removes all sources and sinks, keeping the allocated arrays for the next network layout.
+     */
+    public void clear()
+    {
+        Arrays.fill(sources, 0, sourceCount, null);
+        Arrays.fill(sinks, 0, sinkCount, null);
+        sourceCount = 0;
+        sinkCount = 0;
+    }
+
+    /**
+     * Moves up to {@code maxAmount} of the resource from the sources to the sinks, split evenly across both.
+     *
+     * @return Amount that was (or would have been, if simulated) accepted by the sinks.
+     */
+    public int transfer(R resource, int maxAmount, boolean simulate)
+    {
+        if (maxAmount <= 0 || sourceCount == 0 || sinkCount == 0)
+        {
+            return 0;
+        }
+        long totalOffered = 0;
+        for (int i = 0; i < sourceCount; i++)
+        {
+            offered[i] = Math.max(0, access.extract(source(i), resource, maxAmount, true));
+            totalOffered += offered[i];
+        }
+        int budget = (int) Math.min(totalOffered, maxAmount);
+        if (budget == 0)
+        {
+            return 0;
+        }
+        long totalDemanded = 0;
+        for (int i = 0; i < sinkCount; i++)
+        {
+            demanded[i] = Math.max(0, access.insert(sink(i), resource, budget, true));
+            totalDemanded += demanded[i];
+        }
+        int amount = (int) Math.min(totalDemanded, budget);
+        if (amount == 0 || simulate)
+        {
+            return amount;
+        }
+        distribution.distribute(amount, offered, sourceCount, taken);
+        distribution.distribute(amount, demanded, sinkCount, given);
+
+        // Each sink accepts before the sources are emptied by exactly what it accepted, so nothing ever has to be given back
+        cursor = 0;
+        int delivered = 0;
+        boolean shortSink = false;
+        for (int i = 0; i < sinkCount && cursor < sourceCount; i++)
+        {
+            if (given[i] > 0)
+            {
+                int received = commit(sink(i), resource, given[i]);
+                delivered += received;
+                given[i] -= received;
+                shortSink |= given[i] > 0;
+            }
+        }
+        // A sink took less than it simulated, offer what the sources still have planned to the sinks that took their whole share
+        for (int i = 0; i < sinkCount && shortSink && cursor < sourceCount; i++)
+        {
+            if (demanded[i] > 0 && given[i] == 0)
+            {
+                delivered += commit(sink(i), resource, Integer.MAX_VALUE);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Gives the sink up to {@code maxAmount} of what the sources can still provide of their planned share, then takes exactly the accepted amount from the sources.
+     * @return The amount the sink accepted.
+     */
+    private int commit(H sink, R resource, int maxAmount)
+    {
+        int available = 0;
+        for (int i = cursor; i < sourceCount && available < maxAmount; i++)
+        {
+            if (taken[i] > 0)
+            {
+                available += Math.max(0, Math.min(taken[i], access.extract(source(i), resource, Math.min(taken[i], maxAmount - available), true)));
+            }
+        }
+        if (available == 0)
+        {
+            return 0;
+        }
+        int accepted = Math.max(0, Math.min(available, access.insert(sink, resource, available, false)));
+        int remaining = accepted;
+        while (remaining > 0 && cursor < sourceCount)
+        {
+            int request = Math.min(taken[cursor], remaining);
+            int provided = request > 0 ? Math.max(0, Math.min(request, access.extract(source(cursor), resource, request, false))) : 0;
+            remaining -= provided;
+            taken[cursor] -= provided;
+            if (taken[cursor] == 0 || provided < request)
+            {
+                // Planned share used up, or the source has less than it simulated, move on to the next one
+                taken[cursor] = 0;
+                cursor++;
+            }
+        }
+        return accepted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private H source(int index)
+    {
+        return (H)sources[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private H sink(int index)
+    {
+        return (H)sinks[index];
+    }
+}
@@ -19,14 +19,21 @@
 
 package net.minecraftforge.common.util;
 
-import java.util.BitSet;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Queue;
 import java.util.function.Predicate;
 
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraft.item.crafting.RecipeItemHelper;
+
 public class RecipeMatcher
 {
+    private static final int UNMATCHED = -1;
+    private static final int INFINITE = Integer.MAX_VALUE;
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
     /**
      * Attempts to match inputs to the specified tests. In the best way that all inputs are used by one test.
      * Will return null in any of these cases:
@@ -43,120 +50,228 @@ public class RecipeMatcher
         if (elements != tests.size())
             return null; // There will not be a 1:1 mapping of inputs -> tests
 
-        int[] ret = new int[elements];
-        for (int x = 0; x < elements; x++)
-            ret[x] = -1;
+        Workspace ws = WORKSPACE.get();
+        ws.ensureCapacity(elements);
 
-        // [UnusedInputs] [UnusedIngredients] [IngredientMatchMask]...
-        BitSet data = new BitSet((elements + 2) * elements);
-        for (int x = 0; x < elements; x++)
-        {
-            int matched = 0;
-            int offset = (x + 2) * elements;
-            Predicate<T> test = tests.get(x);
+        if (!buildGraph(ws, inputs, tests, elements))
+            return null;
 
-            for (int y = 0; y < elements; y++)
+        // Hopcroft-Karp: find a maximum matching between tests and inputs, every test has to get its own input
+        int matched = matchGreedy(ws, elements);
+        while (matched < elements && findLayers(ws, elements))
+        {
+            Arrays.fill(ws.next, 0, elements, 0);
+            for (int test = 0; test < elements; test++)
             {
-                if (data.get(y))
-                    continue;
-
-                if (test.test(inputs.get(y)))
-                {
-                    data.set(offset + y);
+                if (ws.inputOfTest[test] == UNMATCHED && augment(ws, test, elements))
                     matched++;
-                }
-            }
-
-            if (matched == 0)
-                return null; //We have an test that matched non of the inputs
-
-            if (matched == 1)
-            {
-                if (!claim(ret, data, x, elements))
-                    return null; //We failed to claim this index, which means it caused something else to go to 0 matches, which makes the whole thing fail
             }
         }
 
-        if (data.nextClearBit(0) >= elements) //All items have been used, which means all tests have a match!
-            return ret;
-
-        // We should be in a state where multiple tests are satified by multiple inputs. So we need to try a branching recursive test.
-        // However for performance reasons, we should probably make that check a sub-set of the entire graph.
-        if (backtrack(data, ret, 0, elements))
-            return ret;
+        if (matched < elements)
+            return null;
 
-        return null; //Backtrack failed, no matches, we cry and go home now :(
+        int[] ret = new int[elements];
+        System.arraycopy(ws.testOfInput, 0, ret, 0, elements);
+        return ret;
     }
 
-    // This is bad... need to think of a better cascade, recursion instead of stack?
-    private static boolean claim(int[] ret, BitSet data, int claimed, int elements)
+    /**
+     * Collects which inputs each test accepts, in input order.
+     * @return False if a test or an input has nothing to be paired with
+     */
+    private static <T> boolean buildGraph(Workspace ws, List<T> inputs, List<? extends Predicate<T>> tests, int elements)
     {
-        Queue<Integer> pending = new LinkedList<Integer>();
-        pending.add(claimed);
+        boolean[] accepted = ws.accepted;
+        Arrays.fill(accepted, 0, elements, false);
 
-        while (pending.peek() != null)
+        // Vanilla ingredients only compare items, so the packed item ids they keep anyway are enough to test them
+        boolean packed = false;
+        for (int y = 0; y < elements; y++)
         {
-            int test = pending.poll();
-            int offset = (test + 2) * elements;
-            int used = data.nextSetBit(offset) - offset;
-
-            if (used >= elements || used < 0)
-                throw new IllegalStateException("What? We matched something, but it wasn't set in the range of this test! Test: " + test +  " Used: " + used);
+            T input = inputs.get(y);
+            if (!(input instanceof ItemStack))
+                break;
+            ws.packedInputs[y] = RecipeItemHelper.pack((ItemStack)input);
+            packed = y == elements - 1;
+        }
 
-            data.set(used);
-            data.set(elements + test);
-            ret[used] = test;
+        for (int x = 0; x < elements; x++)
+        {
+            Predicate<T> test = tests.get(x);
+            IntList items = packed && test instanceof Ingredient && ((Ingredient)test).isVanilla() ? ((Ingredient)test).getValidItemStacksPacked() : null;
+            if (items != null && items.isEmpty())
+                items = null; // Empty ingredients have their own rules, leave them to the test
 
-            for (int x = 0; x < elements; x++)
+            int offset = x * elements;
+            int degree = 0;
+            for (int y = 0; y < elements; y++)
             {
-                offset = (x + 2) * elements;
-                if (data.get(offset + used) && !data.get(elements + x))
+                if (items != null ? items.contains(ws.packedInputs[y]) : test.test(inputs.get(y)))
                 {
-                    data.clear(offset + used);
-                    int count = 0;
-                    for (int y = offset; y < offset + elements; y++)
-                        if (data.get(y))
-                            count++;
-
-                    if (count == 0)
-                        return false; //Claiming this caused another test to lose its last match..
-
-                    if (count == 1)
-                        pending.add(x);
+                    ws.edges[offset + degree++] = y;
+                    accepted[y] = true;
                 }
             }
+
+            if (degree == 0)
+                return false; // We have an test that matched non of the inputs
+            ws.degree[x] = degree;
         }
 
+        for (int y = 0; y < elements; y++)
+        {
+            if (!accepted[y])
+                return false; // We have an input that no test wants
+        }
         return true;
     }
 
-    //We use recursion here, why? Because I feel like it. Also because we should only ever be working in data sets < 9
-    private static boolean backtrack(BitSet data, int[] ret, int start, int elements)
+    /**
+     * Pairs each test with its first free input, which already is the final matching for most recipes.
+     * @return The number of matched tests
+     */
+    private static int matchGreedy(Workspace ws, int elements)
     {
-      int test = data.nextClearBit(elements + start) - elements;
-      if (test >= elements)
-        return true; //Could not find the next unused test.
+        Arrays.fill(ws.inputOfTest, 0, elements, UNMATCHED);
+        Arrays.fill(ws.testOfInput, 0, elements, UNMATCHED);
 
-      if (test < 0)
-        throw new IllegalStateException("This should never happen, negative test in backtrack!");
+        int matched = 0;
+        for (int x = 0; x < elements; x++)
+        {
+            int offset = x * elements;
+            for (int i = 0; i < ws.degree[x]; i++)
+            {
+                int y = ws.edges[offset + i];
+                if (ws.testOfInput[y] == UNMATCHED)
+                {
+                    ws.testOfInput[y] = x;
+                    ws.inputOfTest[x] = y;
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
 
-      int offset = (test + 2) * elements;
-      for (int x = 0; x < elements; x++)
-      {
-        if (!data.get(offset + x) || data.get(x))
-            continue;
+    /**
+     * Breadth first search from all unmatched tests, alternating between unmatched and matched edges.
+     * @return True if there is an augmenting path, which ends at an unmatched input
+     */
+    private static boolean findLayers(Workspace ws, int elements)
+    {
+        int head = 0;
+        int tail = 0;
+        for (int x = 0; x < elements; x++)
+        {
+            if (ws.inputOfTest[x] == UNMATCHED)
+            {
+                ws.layer[x] = 0;
+                ws.queue[tail++] = x;
+            }
+            else
+            {
+                ws.layer[x] = INFINITE;
+            }
+        }
 
-        data.set(x);
+        boolean found = false;
+        while (head < tail)
+        {
+            int x = ws.queue[head++];
+            int offset = x * elements;
+            for (int i = 0; i < ws.degree[x]; i++)
+            {
+                int owner = ws.testOfInput[ws.edges[offset + i]];
+                if (owner == UNMATCHED)
+                {
+                    found = true;
+                }
+                else if (ws.layer[owner] == INFINITE)
+                {
+                    ws.layer[owner] = ws.layer[x] + 1;
+                    ws.queue[tail++] = owner;
+                }
+            }
+        }
+        return found;
+    }
 
-        if (backtrack(data, ret, test + 1, elements))
+    /**
+     * Depth first search along the layers for an augmenting path starting at the given test, flipping it if found.
+     * Iterative, with {@link Workspace#path} holding the tests on the path and {@link Workspace#via} the inputs between them.
+     */
+    private static boolean augment(Workspace ws, int root, int elements)
+    {
+        int depth = 0;
+        ws.path[depth++] = root;
+        while (depth > 0)
         {
-            ret[x] = test;
-            return true;
+            int x = ws.path[depth - 1];
+            if (ws.next[x] < ws.degree[x])
+            {
+                int y = ws.edges[x * elements + ws.next[x]++];
+                int owner = ws.testOfInput[y];
+                if (owner == UNMATCHED)
+                {
+                    ws.via[depth - 1] = y;
+                    for (int i = depth - 1; i >= 0; i--)
+                    {
+                        ws.testOfInput[ws.via[i]] = ws.path[i];
+                        ws.inputOfTest[ws.path[i]] = ws.via[i];
+                    }
+                    return true;
+                }
+                if (ws.layer[owner] == ws.layer[x] + 1)
+                {
+                    ws.via[depth - 1] = y;
+                    ws.path[depth++] = owner;
+                }
+            }
+            else
+            {
+                ws.layer[x] = INFINITE; // Dead end, no need to look here again in this phase
+                depth--;
+            }
         }
+        return false;
+    }
 
-        data.clear(x);
-      }
+    /**
+     * Arrays reused between calls on the same thread, so matching does not allocate anything but the result.
+     */
+    private static class Workspace
+    {
+        private int capacity = -1;
+        private int[] edges;
+        private int[] degree;
+        private int[] packedInputs;
+        private boolean[] accepted;
+        private int[] inputOfTest;
+        private int[] testOfInput;
+        private int[] layer;
+        private int[] queue;
+        private int[] next;
+        private int[] path;
+        private int[] via;
 
-      return false;
+        private void ensureCapacity(int elements)
+        {
+            if (elements <= capacity)
+                return;
+            capacity = Math.max(elements, 9);
+            edges = new int[capacity * capacity];
+            degree = new int[capacity];
+            packedInputs = new int[capacity];
+            accepted = new boolean[capacity];
+            inputOfTest = new int[capacity];
+            testOfInput = new int[capacity];
+            layer = new int[capacity];
+            queue = new int[capacity];
+            next = new int[capacity];
+            path = new int[capacity];
+            via = new int[capacity];
+        }
     }
 }
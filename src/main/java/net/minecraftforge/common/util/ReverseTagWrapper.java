@@ -25,28 +25,49 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 
+import javax.annotation.Nullable;
+
 import net.minecraft.tags.ITag;
 import net.minecraft.tags.ITagCollection;
 import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.registries.IForgeRegistryEntry;
 
 public class ReverseTagWrapper<T>
 {
     private final T target;
     private final Supplier<ITagCollection<T>> colSupplier;
+    @Nullable
+    private final TagMembership<?> membership;
 
     //This map is immutable we track its identity change.
     private Map<ResourceLocation, ITag<T>> colCache;
     private Set<ResourceLocation> cache = null;
 
     public ReverseTagWrapper(T target, Supplier<ITagCollection<T>> colSupplier)
+    {
+        this(target, colSupplier, null);
+    }
+
+    /**
+     * @param membership Membership of the target's registry, used instead of testing every tag when it was built from the current collection
+     */
+    public ReverseTagWrapper(T target, Supplier<ITagCollection<T>> colSupplier, @Nullable TagMembership<?> membership)
     {
         this.target = target;
         this.colSupplier = colSupplier;
+        this.membership = membership;
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     public Set<ResourceLocation> getTagNames()
     {
         ITagCollection<T> collection = colSupplier.get();
+        if (membership != null)
+        {
+            Set<ResourceLocation> names = ((TagMembership)membership).getTagNames((ITagCollection)collection, (IForgeRegistryEntry)target);
+            if (names != null)
+                return names;
+        }
         if (cache == null || colCache != collection.getIDTagMap()) // Identity equals.
         {
             this.cache = Collections.unmodifiableSet(new HashSet<>(collection.getOwningTags(target)));
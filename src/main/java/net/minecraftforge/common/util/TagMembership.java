@@ -0,0 +1,174 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.common.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+
+import net.minecraft.block.Block;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.item.Item;
+import net.minecraft.tags.ITag;
+import net.minecraft.tags.ITagCollection;
+import net.minecraft.tags.ITagCollectionSupplier;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.ForgeRegistry;
+import net.minecraftforge.registries.IForgeRegistry;
+import net.minecraftforge.registries.IForgeRegistryEntry;
+
+/**
+ * Tag membership of the entries of a registry, as one bit set per tag indexed by the entries' registry ids.
+ *
+ * Rebuilt in one pass over all tags whenever tags are updated, and replaced as a whole, so readers never see a partial update.
+ * Answers which tags an entry is in without testing every tag, and whether an entry is in a tag given by name.
+ */
+public class TagMembership<T extends IForgeRegistryEntry<T>>
+{
+    public static final TagMembership<Block> BLOCKS = new TagMembership<>(() -> ForgeRegistries.BLOCKS);
+    public static final TagMembership<Item> ITEMS = new TagMembership<>(() -> ForgeRegistries.ITEMS);
+    public static final TagMembership<Fluid> FLUIDS = new TagMembership<>(() -> ForgeRegistries.FLUIDS);
+
+    private final Supplier<IForgeRegistry<T>> registry;
+    private volatile Snapshot snapshot;
+
+    private TagMembership(Supplier<IForgeRegistry<T>> registry)
+    {
+        this.registry = registry;
+    }
+
+    public static void updateAll(ITagCollectionSupplier tags)
+    {
+        BLOCKS.update(tags.getBlockTags());
+        ITEMS.update(tags.getItemTags());
+        FLUIDS.update(tags.getFluidTags());
+    }
+
+    public void update(ITagCollection<T> collection)
+    {
+        snapshot = new Snapshot(collection);
+    }
+
+    /**
+     * @return True if the entry is in the tag with the given name, in the last updated tags
+     */
+    public boolean contains(ResourceLocation tag, T entry)
+    {
+        Snapshot current = snapshot;
+        if (current == null)
+            return false;
+        Integer index = current.tagIndexes.get(tag);
+        int id = getId(entry);
+        return index != null && id >= 0 && current.members[index].get(id);
+    }
+
+    /**
+     * @return The names of all tags the entry is in, in the last updated tags
+     */
+    public Set<ResourceLocation> getTagNames(T entry)
+    {
+        Snapshot current = snapshot;
+        return current == null ? Collections.emptySet() : current.getTagNames(getId(entry));
+    }
+
+    /**
+     * @return The names of all tags of the collection the entry is in, or null if the collection is not the one last updated
+     */
+    @Nullable
+    public Set<ResourceLocation> getTagNames(ITagCollection<T> collection, T entry)
+    {
+        Snapshot current = snapshot;
+        if (current == null || current.tagMap != collection.getIDTagMap()) // Identity equals, the map is replaced with the tags
+            return null;
+        return current.getTagNames(getId(entry));
+    }
+
+    private int getId(T entry)
+    {
+        return ((ForgeRegistry<T>)registry.get()).getID(entry);
+    }
+
+    private class Snapshot
+    {
+        private final Map<ResourceLocation, ITag<T>> tagMap;
+        private final Map<ResourceLocation, Integer> tagIndexes = new HashMap<>();
+        private final BitSet[] members;
+        /** Tag names of each entry by registry id, null for entries without tags */
+        private final Set<ResourceLocation>[] tagNames;
+
+        @SuppressWarnings("unchecked")
+        private Snapshot(ITagCollection<T> collection)
+        {
+            this.tagMap = collection.getIDTagMap();
+            this.members = new BitSet[tagMap.size()];
+
+            int maxId = -1;
+            List<ResourceLocation> names = new ArrayList<>(tagMap.keySet());
+            Collections.sort(names);
+            for (int i = 0; i < names.size(); i++)
+            {
+                ResourceLocation name = names.get(i);
+                tagIndexes.put(name, i);
+                BitSet bits = new BitSet();
+                for (T entry : tagMap.get(name).getAllElements())
+                {
+                    int id = getId(entry);
+                    if (id >= 0)
+                        bits.set(id);
+                }
+                members[i] = bits;
+                maxId = Math.max(maxId, bits.length() - 1);
+            }
+
+            List<ResourceLocation>[] byId = new List[maxId + 1];
+            for (int i = 0; i < members.length; i++)
+            {
+                for (int id = members[i].nextSetBit(0); id >= 0; id = members[i].nextSetBit(id + 1))
+                {
+                    if (byId[id] == null)
+                        byId[id] = new ArrayList<>();
+                    byId[id].add(names.get(i));
+                }
+            }
+            this.tagNames = new Set[byId.length];
+            for (int id = 0; id < byId.length; id++)
+            {
+                if (byId[id] != null)
+                    tagNames[id] = ImmutableSet.copyOf(byId[id]);
+            }
+        }
+
+        private Set<ResourceLocation> getTagNames(int id)
+        {
+            Set<ResourceLocation> ret = id >= 0 && id < tagNames.length ? tagNames[id] : null;
+            return ret != null ? ret : Collections.emptySet();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.minecraftforge.common.util;
+
+import java.util.Arrays;
+
+/**
+ * Splits an amount evenly across a set of limited participants, for transfer engines moving energy or fluids between many handlers at once.
+ * <p>
+ * Works on primitive arrays only and keeps its sort buffer between calls, so an instance should be reused by one engine and not shared between threads.
+ */
+public class TransferDistribution
+{
+    private long[] order = new long[0];
+
+    /**
+     * Distributes {@code amount} across the first {@code count} participants so that no participant gets more than its limit
+     * and the amounts differ by at most one between participants that did not reach their limit.
+     * Leftover units from uneven splits go to the participants with the smallest limits among those not capped, then by index.
+     *
+     * @param amount The amount to distribute, must not exceed the sum of the limits to be fully distributed.
+     * @param limits The most each participant can take, values below zero count as zero.
+     * @param count  How many participants to consider.
+     * @param out    Receives the share of each participant, must hold at least {@code count} entries.
+     * @return The amount that was distributed, less than {@code amount} only if the limits do not add up to it.
+     */
+    public int distribute(int amount, int[] limits, int count, int[] out)
+    {
+        if (order.length < count)
+        {
+            order = new long[Math.max(count, order.length * 2)];
+        }
+        int active = 0;
+        for (int i = 0; i < count; i++)
+        {
+            out[i] = 0;
+            if (limits[i] > 0)
+            {
+                // Limit in the high bits and index in the low bits, so a single primitive sort orders by limit then index
+                order[active++] = ((long) limits[i] << 32) | i;
+            }
+        }
+        Arrays.sort(order, 0, active);
+
+        int remaining = amount;
+        for (int k = 0; k < active && remaining > 0; k++)
+        {
+            int index = (int) order[k];
+            int limit = (int) (order[k] >>> 32);
+            int participants = active - k;
+            int share = remaining / participants;
+            if (limit <= share)
+            {
+                out[index] = limit;
+                remaining -= limit;
+                continue;
+            }
+            // Every participant from here on can take at least the share, hand out the rest evenly and stop
+            int extra = remaining - share * participants;
+            for (int m = k; m < active; m++)
+            {
+                int give = share + (m - k < extra ? 1 : 0);
+                out[(int) order[m]] = give;
+            }
+            remaining = 0;
+        }
+        return amount - remaining;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.energy;
+
+import net.minecraftforge.common.util.BatchTransfer;
+
+/**
+ * Moves energy from many {@link IEnergyStorage sources} to many {@link IEnergyStorage sinks} in one planned operation,
+ * for cable networks that would otherwise call every storage once to simulate and once more to execute per pair.
+ * <p>
+ * Storages are resolved once by the caller and added to the transfer, which can then be kept and run every tick
+ * until the network changes. The energy is split evenly over both sides, and no energy is extracted without a sink
+ * receiving it, see {@link BatchTransfer} for how the plan is made and committed.
+ * Instances are not thread safe.
+ */
+public class EnergyTransfer
+{
+    private static final BatchTransfer.Access<IEnergyStorage, Void> ACCESS = new BatchTransfer.Access<IEnergyStorage, Void>()
+    {
+        @Override
+        public int extract(IEnergyStorage source, Void resource, int amount, boolean simulate)
+        {
+            return source.canExtract() ? source.extractEnergy(amount, simulate) : 0;
+        }
+
+        @Override
+        public int insert(IEnergyStorage sink, Void resource, int amount, boolean simulate)
+        {
+            return sink.canReceive() ? sink.receiveEnergy(amount, simulate) : 0;
+        }
+    };
+
+    private final BatchTransfer<IEnergyStorage, Void> transfer = new BatchTransfer<>(ACCESS);
+
+    public EnergyTransfer addSource(IEnergyStorage source)
+    {
+        transfer.addSource(source);
+        return this;
+    }
+
+    public EnergyTransfer addSink(IEnergyStorage sink)
+    {
+        transfer.addSink(sink);
+        return this;
+    }
+
+    public int getSourceCount()
+    {
+        return transfer.getSourceCount();
+    }
+
+    public int getSinkCount()
+    {
+        return transfer.getSinkCount();
+    }
+
+    /**
+     * Removes all sources and sinks, keeping the allocated arrays for the next network layout.
+     */
+    public void clear()
+    {
+        transfer.clear();
+    }
+
+    /**
+     * Moves up to {@code maxTransfer} energy from the sources to the sinks, split evenly across both.
+     *
+     * @param maxTransfer Maximum amount of energy to move in total.
+     * @param simulate    If TRUE, the transfer will only be simulated.
+     * @return Amount of energy that was (or would have been, if simulated) received by the sinks.
+     */
+    public int transfer(int maxTransfer, boolean simulate)
+    {
+        return transfer.transfer(null, maxTransfer, simulate);
+    }
+}
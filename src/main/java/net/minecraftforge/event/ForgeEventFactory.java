@@ -20,6 +20,7 @@
 package net.minecraftforge.event;
 
 import java.io.File;
+import java.lang.reflect.Field;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -142,11 +143,50 @@ import net.minecraftforge.event.world.PistonEvent;
 import net.minecraftforge.event.world.SaplingGrowTreeEvent;
 import net.minecraftforge.event.world.SleepFinishedTimeEvent;
 import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.EventBus;
+import net.minecraftforge.eventbus.ListenerList;
 import net.minecraftforge.eventbus.api.Event;
 import net.minecraftforge.eventbus.api.Event.Result;
 
 public class ForgeEventFactory
 {
+    private static final int EVENT_BUS_ID = getBusID();
+    private static final ListenerList NEIGHBOR_NOTIFY_LISTENERS = new NeighborNotifyEvent(null, null, null, EnumSet.noneOf(Direction.class), false).getListenerList();
+    private static final EnumSet<Direction> ALL_SIDES = EnumSet.allOf(Direction.class);
+    private static final EnumSet<Direction>[] ALL_SIDES_EXCEPT = new EnumSet[6];
+    private static final EnumSet<Direction>[] SINGLE_SIDE = new EnumSet[6];
+    static
+    {
+        for (Direction side : Direction.values())
+        {
+            ALL_SIDES_EXCEPT[side.ordinal()] = EnumSet.complementOf(EnumSet.of(side));
+            SINGLE_SIDE[side.ordinal()] = EnumSet.of(side);
+        }
+    }
+
+    private static int getBusID()
+    {
+        if (!(MinecraftForge.EVENT_BUS instanceof EventBus))
+            return -1;
+        try
+        {
+            Field field = EventBus.class.getDeclaredField("busID");
+            field.setAccessible(true);
+            return field.getInt(MinecraftForge.EVENT_BUS);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * @return False if there is definitely no listener for the event on the Forge bus, so the event does not have to be created
+     */
+    private static boolean hasListeners(ListenerList listeners)
+    {
+        return EVENT_BUS_ID == -1 || listeners.getListeners(EVENT_BUS_ID).length > 0;
+    }
 
     public static boolean onMultiBlockPlace(@Nullable Entity entity, List<BlockSnapshot> blockSnapshots, Direction direction)
     {
@@ -170,6 +210,34 @@ public class ForgeEventFactory
         return event;
     }
 
+    /**
+     * Posts a {@link NeighborNotifyEvent} for all sides but the skipped one. Nothing is allocated if there is no listener.
+     *
+     * @return True if the notification was canceled
+     */
+    public static boolean onNeighborNotify(World world, BlockPos pos, @Nullable Direction skipSide, boolean forceRedstoneUpdate)
+    {
+        return onNeighborNotifyFast(world, pos, skipSide == null ? ALL_SIDES : ALL_SIDES_EXCEPT[skipSide.ordinal()], forceRedstoneUpdate);
+    }
+
+    /**
+     * Posts a {@link NeighborNotifyEvent} for a single side. Nothing is allocated if there is no listener.
+     *
+     * @return True if the notification was canceled
+     */
+    public static boolean onNeighborNotifySide(World world, BlockPos pos, Direction side, boolean forceRedstoneUpdate)
+    {
+        return onNeighborNotifyFast(world, pos, SINGLE_SIDE[side.ordinal()], forceRedstoneUpdate);
+    }
+
+    private static boolean onNeighborNotifyFast(World world, BlockPos pos, EnumSet<Direction> sides, boolean forceRedstoneUpdate)
+    {
+        if (!hasListeners(NEIGHBOR_NOTIFY_LISTENERS))
+            return false;
+        // Listeners may change the set, so they get their own copy
+        return onNeighborNotify(world, pos, world.getBlockState(pos), sides.clone(), forceRedstoneUpdate).isCanceled();
+    }
+
     public static boolean doPlayerHarvestCheck(PlayerEntity player, BlockState state, boolean success)
     {
         PlayerEvent.HarvestCheck event = new PlayerEvent.HarvestCheck(player, state, success);
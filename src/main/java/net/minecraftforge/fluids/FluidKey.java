@@ -0,0 +1,132 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+
+package net.minecraftforge.fluids;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.nbt.CompoundNBT;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable, interned identity of a {@link FluidStack}: its fluid and tag, without an amount.
+ *
+ * Keys are meant for fluid transfer code that moves the same fluid over and over, such as pipe networks.
+ * They can be held alongside a plain {@code int} amount instead of a FluidStack, compared by identity,
+ * and turned back into stacks with {@link #toStack(int)} without looking up the fluid registry or copying the tag.
+ */
+public final class FluidKey
+{
+    private static final Interner<FluidKey> INTERNER = Interners.newWeakInterner();
+
+    public static final FluidKey EMPTY = INTERNER.intern(new FluidKey(Fluids.EMPTY, null));
+
+    private final Fluid fluid;
+    @Nullable
+    private final CompoundNBT tag;
+    private final int hash;
+
+    private FluidKey(Fluid fluid, @Nullable CompoundNBT tag)
+    {
+        this.fluid = fluid;
+        this.tag = tag;
+        this.hash = 31 * fluid.hashCode() + (tag == null ? 0 : tag.hashCode());
+    }
+
+    /**
+     * @return The key for the fluid and tag of the given stack, {@link #EMPTY} if the stack is empty.
+     */
+    @Nonnull
+    public static FluidKey of(@Nonnull FluidStack stack)
+    {
+        if (stack.isEmpty())
+        {
+            return EMPTY;
+        }
+        // A shared tag is copied by the stack before it is modified, and a tag that was handed out is copied right away, so nothing can change the key's tag
+        return INTERNER.intern(new FluidKey(stack.getFluid(), stack.shareTag()));
+    }
+
+    /**
+     * @return A new stack of this key's fluid and tag. The tag is only copied once the stack hands it out.
+     */
+    @Nonnull
+    public FluidStack toStack(int amount)
+    {
+        if (this == EMPTY)
+        {
+            return FluidStack.EMPTY;
+        }
+        return new FluidStack(fluid, amount, tag, true);
+    }
+
+    public Fluid getFluid()
+    {
+        return fluid;
+    }
+
+    public boolean isEmpty()
+    {
+        return this == EMPTY;
+    }
+
+    /**
+     * @return true if the stack has this key's fluid and tag, regardless of its amount. Same as {@link FluidStack#isFluidEqual(FluidStack)}.
+     */
+    public boolean matches(@Nonnull FluidStack stack)
+    {
+        if (stack.isEmpty())
+        {
+            return this == EMPTY;
+        }
+        return fluid == stack.getFluid() && (tag == null ? !stack.hasTag() : tag.equals(stack.peekTag()));
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof FluidKey))
+        {
+            return false;
+        }
+        FluidKey other = (FluidKey) o;
+        return hash == other.hash && fluid == other.fluid && (tag == null ? other.tag == null : tag.equals(other.tag));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FluidKey{" + fluid.getRegistryName() + (tag == null ? "" : ", " + tag) + "}";
+    }
+}
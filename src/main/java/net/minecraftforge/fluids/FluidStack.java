@@ -59,7 +59,7 @@ public class FluidStack
             instance -> instance.group(
                     Registry.FLUID.fieldOf("FluidName").forGetter(FluidStack::getFluid),
                     Codec.INT.fieldOf("Amount").forGetter(FluidStack::getAmount),
-                    CompoundNBT.CODEC.optionalFieldOf("Tag").forGetter(stack -> Optional.ofNullable(stack.getTag()))
+                    CompoundNBT.CODEC.optionalFieldOf("Tag").forGetter(stack -> Optional.ofNullable(stack.tag == null ? null : stack.tag.copy()))
             ).apply(instance, (fluid, amount, tag) -> {
                 FluidStack stack = new FluidStack(fluid, amount);
                 tag.ifPresent(stack::setTag);
@@ -70,6 +70,15 @@ public class FluidStack
     private boolean isEmpty;
     private int amount;
     private CompoundNBT tag;
+    /**
+     * Whether {@link #tag} may be referenced by another stack or {@link FluidKey}, and must be copied before it is handed out or modified.
+     */
+    private boolean tagShared;
+    /**
+     * Whether {@link #tag} was handed out by {@link #getTag()} or given by {@link #setTag(CompoundNBT)}, so code outside this stack may still modify it.
+     * Such a tag is never shared, other stacks and keys get a copy instead.
+     */
+    private boolean tagEscaped;
     private IRegistryDelegate<Fluid> fluidDelegate;
 
     public FluidStack(Fluid fluid, int amount)
@@ -100,9 +109,33 @@ public class FluidStack
         }
     }
 
+    /**
+     * Creates a stack of the same fluid and tag as the given stack.
+     * The fluid of an existing stack is already known to be registered, so it is not looked up again,
+     * and the tag is shared with the given stack until either of them hands it out.
+     * If the given stack already handed out its tag, this stack gets a copy instead.
+     * <p>
+     * Sharing marks the tag of the given stack as shared, so this writes to the given stack unless its tag is already shared.
+     * Like any other modification, it must not happen while another thread uses the given stack. Shared constants should be
+     * copied once up front, or held as a {@link FluidKey}.
+     */
     public FluidStack(FluidStack stack, int amount)
     {
-        this(stack.getFluid(), amount, stack.tag);
+        this(stack.getFluid(), amount, stack.shareTag(), true);
+    }
+
+    /**
+     * Creates a stack from a fluid that is known to be registered, taking ownership of the given tag as a shared tag.
+     * The {@code validated} flag only tells this constructor apart from the public ones.
+     */
+    FluidStack(Fluid fluid, int amount, @Nullable CompoundNBT sharedTag, boolean validated)
+    {
+        this.fluidDelegate = fluid.delegate;
+        this.amount = amount;
+        this.tag = sharedTag;
+        this.tagShared = sharedTag != null;
+
+        updateEmpty();
     }
 
     /**
@@ -131,6 +164,7 @@ public class FluidStack
         if (nbt.contains("Tag", Constants.NBT.TAG_COMPOUND))
         {
             stack.tag = nbt.getCompound("Tag");
+            stack.tagEscaped = true;
         }
         return stack;
     }
@@ -142,7 +176,8 @@ public class FluidStack
 
         if (tag != null)
         {
-            nbt.put("Tag", tag);
+            // A copy, so the written NBT can be changed without handing out this stack's tag
+            nbt.put("Tag", tag.copy());
         }
         return nbt;
     }
@@ -208,6 +243,13 @@ public class FluidStack
 
     public CompoundNBT getTag()
     {
+        if (tagShared)
+        {
+            tag = tag.copy();
+            tagShared = false;
+        }
+        if (tag != null && !tagEscaped)
+            tagEscaped = true;
         return tag;
     }
 
@@ -215,25 +257,27 @@ public class FluidStack
     {
         if (getRawFluid() == Fluids.EMPTY) throw new IllegalStateException("Can't modify the empty stack.");
         this.tag = tag;
+        this.tagShared = false;
+        this.tagEscaped = tag != null;
     }
 
     public CompoundNBT getOrCreateTag()
     {
         if (tag == null)
             setTag(new CompoundNBT());
-        return tag;
+        return getTag();
     }
 
     public CompoundNBT getChildTag(String childName)
     {
         if (tag == null)
             return null;
-        return tag.getCompound(childName);
+        return getTag().getCompound(childName);
     }
 
     public CompoundNBT getOrCreateChildTag(String childName)
     {
-        getOrCreateTag();
+        CompoundNBT tag = getOrCreateTag();
         CompoundNBT child = tag.getCompound(childName);
         if (!tag.contains(childName, Constants.NBT.TAG_COMPOUND))
         {
@@ -245,7 +289,41 @@ public class FluidStack
     public void removeChildTag(String childName)
     {
         if (tag != null)
+        {
+            // Changed in place without handing the tag out
+            if (tagShared)
+            {
+                tag = tag.copy();
+                tagShared = false;
+            }
             tag.remove(childName);
+        }
+    }
+
+    /**
+     * @return The tag of this stack without unsharing it. Must not be modified.
+     */
+    @Nullable
+    CompoundNBT peekTag()
+    {
+        return tag;
+    }
+
+    /**
+     * Marks the tag of this stack as shared and returns it, so another stack or {@link FluidKey} can reference it without a copy.
+     * If the tag may still be modified from outside, a copy is returned instead and this stack keeps its tag unshared.
+     */
+    @Nullable
+    CompoundNBT shareTag()
+    {
+        if (tag == null)
+            return null;
+        if (tagEscaped)
+            return tag.copy();
+        // Only written once, copying an already shared tag leaves this stack untouched
+        if (!tagShared)
+            tagShared = true;
+        return tag;
     }
 
     public ITextComponent getDisplayName()
@@ -259,11 +337,14 @@ public class FluidStack
     }
 
     /**
+     * The copy shares the tag of this stack until either of them hands it out, see {@link #FluidStack(FluidStack, int)}.
+     * This marks the tag of this stack as shared, so copying is a modification of this stack as well.
+     *
      * @return A copy of this FluidStack
      */
     public FluidStack copy()
     {
-        return new FluidStack(getFluid(), amount, tag);
+        return new FluidStack(this, amount);
     }
 
     /**
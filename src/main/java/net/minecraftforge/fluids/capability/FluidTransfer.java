@@ -0,0 +1,114 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fluids.capability;
+
+import javax.annotation.Nonnull;
+
+import net.minecraftforge.common.util.BatchTransfer;
+import net.minecraftforge.fluids.FluidKey;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fluids.capability.IFluidHandler.FluidAction;
+
+/**
+ * Moves one fluid from many {@link IFluidHandler sources} to many {@link IFluidHandler sinks} in one planned operation,
+ * for pipe networks that would otherwise call every handler once to simulate and once more to execute per pair.
+ * <p>
+ * Handlers are resolved once by the caller and added to the transfer, which can then be kept and run every tick
+ * until the network changes. The fluid is split evenly over both sides, and no fluid is drained without a sink
+ * accepting it, see {@link BatchTransfer} for how the plan is made and committed.
+ * <p>
+ * All calls use the {@link FluidKey} overloads of {@link IFluidHandler}. Handlers that override them are called without
+ * creating stacks, the default implementations still create one FluidStack per call.
+ * Instances are not thread safe.
+ */
+public class FluidTransfer
+{
+    private static final BatchTransfer.Access<IFluidHandler, FluidKey> ACCESS = new BatchTransfer.Access<IFluidHandler, FluidKey>()
+    {
+        @Override
+        public int extract(IFluidHandler source, FluidKey resource, int amount, boolean simulate)
+        {
+            return source.drain(resource, amount, simulate ? FluidAction.SIMULATE : FluidAction.EXECUTE);
+        }
+
+        @Override
+        public int insert(IFluidHandler sink, FluidKey resource, int amount, boolean simulate)
+        {
+            return sink.fill(resource, amount, simulate ? FluidAction.SIMULATE : FluidAction.EXECUTE);
+        }
+    };
+
+    private final BatchTransfer<IFluidHandler, FluidKey> transfer = new BatchTransfer<>(ACCESS);
+
+    public FluidTransfer addSource(IFluidHandler source)
+    {
+        transfer.addSource(source);
+        return this;
+    }
+
+    public FluidTransfer addSink(IFluidHandler sink)
+    {
+        transfer.addSink(sink);
+        return this;
+    }
+
+    public int getSourceCount()
+    {
+        return transfer.getSourceCount();
+    }
+
+    public int getSinkCount()
+    {
+        return transfer.getSinkCount();
+    }
+
+    /**
+     * Removes all sources and sinks, keeping the allocated arrays for the next network layout.
+     */
+    public void clear()
+    {
+        transfer.clear();
+    }
+
+    /**
+     * Moves up to the amount of the given stack from the sources to the sinks, split evenly across both.
+     *
+     * @param resource FluidStack representing the Fluid and maximum amount of fluid to be moved.
+     * @param action   If SIMULATE, the transfer will only be simulated.
+     * @return Amount of fluid that was (or would have been, if simulated) filled into the sinks.
+     */
+    public int transfer(@Nonnull FluidStack resource, FluidAction action)
+    {
+        return resource.isEmpty() ? 0 : transfer(FluidKey.of(resource), resource.getAmount(), action);
+    }
+
+    /**
+     * Moves up to {@code maxAmount} of the given fluid from the sources to the sinks, split evenly across both.
+     *
+     * @param resource  FluidKey representing the Fluid and NBT tag of the fluid to be moved.
+     * @param maxAmount Maximum amount of fluid to move in total.
+     * @param action    If SIMULATE, the transfer will only be simulated.
+     * @return Amount of fluid that was (or would have been, if simulated) filled into the sinks.
+     */
+    public int transfer(FluidKey resource, int maxAmount, FluidAction action)
+    {
+        return resource.isEmpty() ? 0 : transfer.transfer(resource, maxAmount, action.simulate());
+    }
+}
@@ -122,4 +122,43 @@ public interface IFluidHandler
     @Nonnull
     FluidStack drain(int maxDrain, FluidAction action);
 
+    /**
+     * Fills fluid into internal tanks, same as {@link #fill(FluidStack, FluidAction)} for a fluid given as a {@link FluidKey} and an amount.
+     * <p/>
+     * Handlers that can compare their contents against the key directly may override this to avoid creating a FluidStack.
+     *
+     * @param resource FluidKey representing the Fluid and NBT tag of the fluid to be filled.
+     * @param amount   Maximum amount of fluid to be filled.
+     * @param action   If SIMULATE, fill will only be simulated.
+     * @return Amount of resource that was (or would have been, if simulated) filled.
+     */
+    default int fill(FluidKey resource, int amount, FluidAction action)
+    {
+        if (resource.isEmpty() || amount <= 0)
+        {
+            return 0;
+        }
+        return fill(resource.toStack(amount), action);
+    }
+
+    /**
+     * Drains fluid out of internal tanks, same as {@link #drain(FluidStack, FluidAction)} for a fluid given as a {@link FluidKey} and an amount.
+     * <p/>
+     * Handlers that can compare their contents against the key directly may override this to avoid creating a FluidStack.
+     *
+     * @param resource  FluidKey representing the Fluid and NBT tag of the fluid to be drained.
+     * @param maxAmount Maximum amount of fluid to be drained.
+     * @param action    If SIMULATE, drain will only be simulated.
+     * @return Amount of resource that was (or would have been, if simulated) drained.
+     */
+    default int drain(FluidKey resource, int maxAmount, FluidAction action)
+    {
+        if (resource.isEmpty() || maxAmount <= 0)
+        {
+            return 0;
+        }
+        FluidStack drained = drain(resource.toStack(maxAmount), action);
+        return resource.matches(drained) ? drained.getAmount() : 0;
+    }
+
 }
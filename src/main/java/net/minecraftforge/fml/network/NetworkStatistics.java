@@ -0,0 +1,327 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.network;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.util.ResourceLocation;
+
+/**
+ * Traffic statistics for {@link net.minecraftforge.fml.network.simple.SimpleChannel}s, per channel and per message discriminator.
+ *
+ * Collection is disabled by default, and can be toggled with {@link #setEnabled(boolean)} or the "/forge netstats" command.
+ * Recording only touches counters that are created when a channel or message is first seen, so it does not allocate
+ * and is safe to call from any thread.
+ */
+public class NetworkStatistics
+{
+    private static final ConcurrentMap<ResourceLocation, ChannelStatistics> CHANNELS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = false;
+    private static volatile long startTime = System.currentTimeMillis();
+    private static Map<PacketDistributor<?>, String> distributorNames;
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled)
+    {
+        if (enabled && !NetworkStatistics.enabled)
+            startTime = System.currentTimeMillis();
+        NetworkStatistics.enabled = enabled;
+    }
+
+    /**
+     * @return The time in milliseconds at which collection was last started or reset
+     */
+    public static long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * Clears the data of all channels, collection continues if it was enabled.
+     */
+    public static void reset()
+    {
+        CHANNELS.values().forEach(ChannelStatistics::reset);
+        startTime = System.currentTimeMillis();
+    }
+
+    public static ChannelStatistics forChannel(ResourceLocation channel)
+    {
+        return CHANNELS.computeIfAbsent(channel, ChannelStatistics::new);
+    }
+
+    @Nullable
+    public static ChannelStatistics getChannel(ResourceLocation channel)
+    {
+        return CHANNELS.get(channel);
+    }
+
+    public static Collection<ChannelStatistics> getChannels()
+    {
+        return Collections.unmodifiableCollection(CHANNELS.values());
+    }
+
+    /**
+     * @return The name of the public constant in {@link PacketDistributor} holding this distributor, or "custom"
+     */
+    public static synchronized String getDistributorName(PacketDistributor<?> distributor)
+    {
+        if (distributorNames == null)
+        {
+            distributorNames = new IdentityHashMap<>();
+            for (Field field : PacketDistributor.class.getFields())
+            {
+                if (!Modifier.isStatic(field.getModifiers()) || field.getType() != PacketDistributor.class)
+                    continue;
+                try
+                {
+                    distributorNames.put((PacketDistributor<?>)field.get(null), field.getName());
+                }
+                catch (IllegalAccessException ignored) {}
+            }
+        }
+        return distributorNames.getOrDefault(distributor, "custom");
+    }
+
+    public static class ChannelStatistics
+    {
+        private final ResourceLocation name;
+        private final MessageStatistics[] messages = new MessageStatistics[256];
+        private final ConcurrentMap<PacketDistributor<?>, LongAdder> sends = new ConcurrentHashMap<>();
+
+        private ChannelStatistics(ResourceLocation name)
+        {
+            this.name = name;
+        }
+
+        public ResourceLocation getName()
+        {
+            return name;
+        }
+
+        /**
+         * @param discriminator The discriminator byte of the message
+         * @return The statistics of that message, created if needed
+         */
+        public MessageStatistics getMessage(int discriminator)
+        {
+            MessageStatistics ret = messages[discriminator & 0xff];
+            if (ret == null)
+            {
+                synchronized (messages)
+                {
+                    ret = messages[discriminator & 0xff];
+                    if (ret == null)
+                        messages[discriminator & 0xff] = ret = new MessageStatistics(discriminator & 0xff);
+                }
+            }
+            return ret;
+        }
+
+        /**
+         * @return The statistics of all messages that have been sent or received at least once
+         */
+        public List<MessageStatistics> getMessages()
+        {
+            List<MessageStatistics> ret = new ArrayList<>();
+            synchronized (messages)
+            {
+                for (MessageStatistics msg : messages)
+                {
+                    if (msg != null && (msg.getEncodedCount() > 0 || msg.getDecodedCount() > 0))
+                        ret.add(msg);
+                }
+            }
+            return ret;
+        }
+
+        /**
+         * @return The number of sends through {@link net.minecraftforge.fml.network.simple.SimpleChannel#send(PacketDistributor.PacketTarget, Object)} per distributor
+         */
+        public Map<PacketDistributor<?>, Long> getSends()
+        {
+            Map<PacketDistributor<?>, Long> ret = new IdentityHashMap<>();
+            sends.forEach((k, v) -> ret.put(k, v.sum()));
+            return ret;
+        }
+
+        public void recordSend(PacketDistributor.PacketTarget target)
+        {
+            LongAdder counter = sends.get(target.distributor);
+            if (counter == null)
+                counter = sends.computeIfAbsent(target.distributor, k -> new LongAdder());
+            counter.increment();
+        }
+
+        public long getEncodedCount()
+        {
+            long ret = 0;
+            for (MessageStatistics msg : getMessages())
+                ret += msg.getEncodedCount();
+            return ret;
+        }
+
+        public long getEncodedBytes()
+        {
+            long ret = 0;
+            for (MessageStatistics msg : getMessages())
+                ret += msg.getEncodedBytes();
+            return ret;
+        }
+
+        public long getDecodedCount()
+        {
+            long ret = 0;
+            for (MessageStatistics msg : getMessages())
+                ret += msg.getDecodedCount();
+            return ret;
+        }
+
+        public long getDecodedBytes()
+        {
+            long ret = 0;
+            for (MessageStatistics msg : getMessages())
+                ret += msg.getDecodedBytes();
+            return ret;
+        }
+
+        private void reset()
+        {
+            synchronized (messages)
+            {
+                for (MessageStatistics msg : messages)
+                {
+                    if (msg != null)
+                        msg.reset();
+                }
+            }
+            sends.values().forEach(LongAdder::reset);
+        }
+    }
+
+    public static class MessageStatistics
+    {
+        private static final int SIZE_BUCKETS = 33; // Power of two buckets, enough for any int size
+
+        private final int discriminator;
+        private final LongAdder encodedCount = new LongAdder();
+        private final LongAdder encodedBytes = new LongAdder();
+        private final LongAdder encodeNanos = new LongAdder();
+        private final AtomicLongArray encodedSizes = new AtomicLongArray(SIZE_BUCKETS);
+        private final LongAdder decodedCount = new LongAdder();
+        private final LongAdder decodedBytes = new LongAdder();
+        private final LongAdder decodeNanos = new LongAdder();
+        private final AtomicLongArray decodedSizes = new AtomicLongArray(SIZE_BUCKETS);
+
+        private MessageStatistics(int discriminator)
+        {
+            this.discriminator = discriminator;
+        }
+
+        public int getDiscriminator()
+        {
+            return discriminator;
+        }
+
+        public void recordEncode(int bytes, long nanos)
+        {
+            encodedCount.increment();
+            encodedBytes.add(bytes);
+            encodeNanos.add(nanos);
+            encodedSizes.incrementAndGet(bucket(bytes));
+        }
+
+        public void recordDecode(int bytes, long nanos)
+        {
+            decodedCount.increment();
+            decodedBytes.add(bytes);
+            decodeNanos.add(nanos);
+            decodedSizes.incrementAndGet(bucket(bytes));
+        }
+
+        public long getEncodedCount() { return encodedCount.sum(); }
+        public long getEncodedBytes() { return encodedBytes.sum(); }
+        public long getEncodeNanos() { return encodeNanos.sum(); }
+        public long getDecodedCount() { return decodedCount.sum(); }
+        public long getDecodedBytes() { return decodedBytes.sum(); }
+        public long getDecodeNanos() { return decodeNanos.sum(); }
+
+        /**
+         * @return The histogram of encoded payload sizes, element n counts the payloads between 2^(n-1) and 2^n - 1 bytes
+         */
+        public long[] getEncodedSizeHistogram()
+        {
+            return toArray(encodedSizes);
+        }
+
+        /**
+         * @return The histogram of decoded payload sizes, element n counts the payloads between 2^(n-1) and 2^n - 1 bytes
+         */
+        public long[] getDecodedSizeHistogram()
+        {
+            return toArray(decodedSizes);
+        }
+
+        private void reset()
+        {
+            encodedCount.reset();
+            encodedBytes.reset();
+            encodeNanos.reset();
+            decodedCount.reset();
+            decodedBytes.reset();
+            decodeNanos.reset();
+            for (int x = 0; x < SIZE_BUCKETS; x++)
+            {
+                encodedSizes.set(x, 0);
+                decodedSizes.set(x, 0);
+            }
+        }
+
+        private static int bucket(int bytes)
+        {
+            return bytes <= 0 ? 0 : 32 - Integer.numberOfLeadingZeros(bytes);
+        }
+
+        private static long[] toArray(AtomicLongArray array)
+        {
+            long[] ret = new long[array.length()];
+            for (int x = 0; x < ret.length; x++)
+                ret[x] = array.get(x);
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.fml.network;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.netty.channel.Channel;
+import net.minecraft.network.IPacket;
+import net.minecraft.network.NetworkManager;
+
+/**
+ * Writes packets to connections without flushing them, and flushes every touched connection once at the end of the server tick.
+ *
+ * Packets are written straight into the connection's netty channel, in the order they were sent, so ordering
+ * with any other packet sent to the same connection is kept. Any regular, flushing, send also pushes out
+ * the packets batched before it.
+ *
+ * @see net.minecraftforge.fml.network.simple.SimpleChannel#setBatching(boolean)
+ */
+public class PacketBatcher
+{
+    private static final Set<Channel> PENDING = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Writes the packet to the connection, it will be flushed at the end of the current server tick.
+     * Connections that are not open yet fall back to a regular send.
+     */
+    public static void write(NetworkManager manager, IPacket<?> packet)
+    {
+        final Channel channel = manager.channel();
+        if (channel == null || !manager.isChannelOpen())
+        {
+            manager.sendPacket(packet);
+            return;
+        }
+        channel.write(packet, channel.voidPromise());
+        PENDING.add(channel);
+    }
+
+    /**
+     * Called by Forge at the end of every server tick. Flushes every connection written to since the last call.
+     */
+    public static void flush()
+    {
+        for (Iterator<Channel> itr = PENDING.iterator(); itr.hasNext();)
+        {
+            Channel channel = itr.next();
+            itr.remove();
+            if (channel.isOpen())
+                channel.flush();
+        }
+    }
+}
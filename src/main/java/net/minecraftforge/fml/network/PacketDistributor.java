@@ -32,6 +32,8 @@ import net.minecraft.world.server.ServerChunkProvider;
 import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.fml.LogicalSidedProvider;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -50,25 +52,25 @@ public class PacketDistributor<T> {
      * <br/>
      * {@link #with(Supplier)} Player
      */
-    public static final PacketDistributor<ServerPlayerEntity> PLAYER = new PacketDistributor<>(PacketDistributor::playerConsumer, NetworkDirection.PLAY_TO_CLIENT);
+    public static final PacketDistributor<ServerPlayerEntity> PLAYER = new PacketDistributor<>(PacketDistributor::playerConsumer, PacketDistributor::playerConnections, NetworkDirection.PLAY_TO_CLIENT);
     /**
      * Send to everyone in the dimension specified in the Supplier
      * <br/>
      * {@link #with(Supplier)} DimensionType
      */
-    public static final PacketDistributor<RegistryKey<World>> DIMENSION = new PacketDistributor<>(PacketDistributor::playerListDimConsumer, NetworkDirection.PLAY_TO_CLIENT);
+    public static final PacketDistributor<RegistryKey<World>> DIMENSION = new PacketDistributor<>(PacketDistributor::playerListDimConsumer, PacketDistributor::playerListDimConnections, NetworkDirection.PLAY_TO_CLIENT);
     /**
      * Send to everyone near the {@link TargetPoint} specified in the Supplier
      * <br/>
      * {@link #with(Supplier)} TargetPoint
      */
-    public static final PacketDistributor<TargetPoint> NEAR = new PacketDistributor<>(PacketDistributor::playerListPointConsumer, NetworkDirection.PLAY_TO_CLIENT);
+    public static final PacketDistributor<TargetPoint> NEAR = new PacketDistributor<>(PacketDistributor::playerListPointConsumer, PacketDistributor::playerListPointConnections, NetworkDirection.PLAY_TO_CLIENT);
     /**
      * Send to everyone
      * <br/>
      * {@link #noArg()}
      */
-    public static final PacketDistributor<Void> ALL = new PacketDistributor<>(PacketDistributor::playerListAll, NetworkDirection.PLAY_TO_CLIENT);
+    public static final PacketDistributor<Void> ALL = new PacketDistributor<>(PacketDistributor::playerListAll, PacketDistributor::playerListAllConnections, NetworkDirection.PLAY_TO_CLIENT);
     /**
      * Send to the server (CLIENT to SERVER)
      * <br/>
@@ -92,13 +94,13 @@ public class PacketDistributor<T> {
      * <br/>
      * {@link #with(Supplier)} Chunk
      */
-    public static final PacketDistributor<Chunk> TRACKING_CHUNK = new PacketDistributor<>(PacketDistributor::trackingChunk, NetworkDirection.PLAY_TO_CLIENT);
+    public static final PacketDistributor<Chunk> TRACKING_CHUNK = new PacketDistributor<>(PacketDistributor::trackingChunk, PacketDistributor::trackingChunkConnections, NetworkDirection.PLAY_TO_CLIENT);
     /**
      * Send to the supplied list of NetworkManager instances in the Supplier
      * <br/>
      * {@link #with(Supplier)} List of NetworkManager
      */
-    public static final PacketDistributor<List<NetworkManager>> NMLIST = new PacketDistributor<>(PacketDistributor::networkManagerList, NetworkDirection.PLAY_TO_CLIENT);
+    public static final PacketDistributor<List<NetworkManager>> NMLIST = new PacketDistributor<>(PacketDistributor::networkManagerList, PacketDistributor::networkManagerListConnections, NetworkDirection.PLAY_TO_CLIENT);
 
     public static final class TargetPoint {
 
@@ -169,9 +171,12 @@ public class PacketDistributor<T> {
      */
     public static class PacketTarget {
         private final Consumer<IPacket<?>> packetConsumer;
-        private final PacketDistributor<?> distributor;
-        PacketTarget(final Consumer<IPacket<?>> packetConsumer, final PacketDistributor<?> distributor) {
+        @Nullable
+        private final Consumer<Consumer<NetworkManager>> connections;
+        final PacketDistributor<?> distributor;
+        PacketTarget(final Consumer<IPacket<?>> packetConsumer, @Nullable final Consumer<Consumer<NetworkManager>> connections, final PacketDistributor<?> distributor) {
             this.packetConsumer = packetConsumer;
+            this.connections = connections;
             this.distributor = distributor;
         }
 
@@ -179,6 +184,21 @@ public class PacketDistributor<T> {
             packetConsumer.accept(packet);
         }
 
+        /**
+         * Send the packet without flushing the target connections, they are flushed once at the end of the server tick.
+         * Distributors that can not list their target connections send the packet normally.
+         *
+         * @see PacketBatcher
+         * @param packet The packet to send
+         */
+        public void sendBatched(IPacket<?> packet) {
+            if (connections == null) {
+                send(packet);
+            } else {
+                connections.accept(nm -> PacketBatcher.write(nm, packet));
+            }
+        }
+
         public NetworkDirection getDirection() {
             return distributor.direction;
         }
@@ -186,10 +206,22 @@ public class PacketDistributor<T> {
     }
 
     private final BiFunction<PacketDistributor<T>, Supplier<T>, Consumer<IPacket<?>>> functor;
+    @Nullable
+    private final BiFunction<PacketDistributor<T>, Supplier<T>, Consumer<Consumer<NetworkManager>>> connections;
     private final NetworkDirection direction;
 
     public PacketDistributor(BiFunction<PacketDistributor<T>, Supplier<T>, Consumer<IPacket<?>>> functor, NetworkDirection direction) {
+        this(functor, null, direction);
+    }
+
+    /**
+     * @param functor Builds the consumer sending a packet to every target
+     * @param connections Builds the consumer visiting every target connection, used for batched sends
+     * @param direction The direction packets are sent in
+     */
+    public PacketDistributor(BiFunction<PacketDistributor<T>, Supplier<T>, Consumer<IPacket<?>>> functor, @Nullable BiFunction<PacketDistributor<T>, Supplier<T>, Consumer<Consumer<NetworkManager>>> connections, NetworkDirection direction) {
         this.functor = functor;
+        this.connections = connections;
         this.direction = direction;
     }
 
@@ -199,7 +231,7 @@ public class PacketDistributor<T> {
      * @return A curried instance
      */
     public PacketTarget with(Supplier<T> input) {
-        return new PacketTarget(functor.apply(this, input), this);
+        return new PacketTarget(functor.apply(this, input), connections == null ? null : connections.apply(this, input), this);
     }
 
     /**
@@ -210,7 +242,7 @@ public class PacketDistributor<T> {
      * @return A curried instance
      */
     public PacketTarget noArg() {
-        return new PacketTarget(functor.apply(this, ()->null), this);
+        return new PacketTarget(functor.apply(this, ()->null), connections == null ? null : connections.apply(this, ()->null), this);
     }
 
     private Consumer<IPacket<?>> playerConsumer(final Supplier<ServerPlayerEntity> entityPlayerMPSupplier) {
@@ -260,6 +292,50 @@ public class PacketDistributor<T> {
         return p -> nmListSupplier.get().forEach(nm->nm.sendPacket(p));
     }
 
+    private Consumer<Consumer<NetworkManager>> playerConnections(final Supplier<ServerPlayerEntity> entityPlayerMPSupplier) {
+        return c -> c.accept(entityPlayerMPSupplier.get().connection.netManager);
+    }
+
+    private Consumer<Consumer<NetworkManager>> playerListDimConnections(final Supplier<RegistryKey<World>> dimensionTypeSupplier) {
+        return c -> {
+            final RegistryKey<World> dim = dimensionTypeSupplier.get();
+            for (ServerPlayerEntity player : getServer().getPlayerList().getPlayers()) {
+                if (player.world.getDimensionKey() == dim)
+                    c.accept(player.connection.netManager);
+            }
+        };
+    }
+
+    private Consumer<Consumer<NetworkManager>> playerListAllConnections(final Supplier<Void> voidSupplier) {
+        return c -> getServer().getPlayerList().getPlayers().forEach(p -> c.accept(p.connection.netManager));
+    }
+
+    private Consumer<Consumer<NetworkManager>> playerListPointConnections(final Supplier<TargetPoint> targetPointSupplier) {
+        return c -> {
+            final TargetPoint tp = targetPointSupplier.get();
+            for (ServerPlayerEntity player : getServer().getPlayerList().getPlayers()) {
+                if (player != tp.excluded && player.world.getDimensionKey() == tp.dim) {
+                    double dx = tp.x - player.getPosX();
+                    double dy = tp.y - player.getPosY();
+                    double dz = tp.z - player.getPosZ();
+                    if (dx * dx + dy * dy + dz * dz < tp.r2 * tp.r2) // Same check as PlayerList.sendToAllNearExcept
+                        c.accept(player.connection.netManager);
+                }
+            }
+        };
+    }
+
+    private Consumer<Consumer<NetworkManager>> trackingChunkConnections(final Supplier<Chunk> chunkPosSupplier) {
+        return c -> {
+            final Chunk chunk = chunkPosSupplier.get();
+            ((ServerChunkProvider)chunk.getWorld().getChunkProvider()).chunkManager.getTrackingPlayers(chunk.getPos(), false).forEach(e -> c.accept(e.connection.netManager));
+        };
+    }
+
+    private Consumer<Consumer<NetworkManager>> networkManagerListConnections(final Supplier<List<NetworkManager>> nmListSupplier) {
+        return c -> nmListSupplier.get().forEach(c);
+    }
+
     private MinecraftServer getServer() {
         return LogicalSidedProvider.INSTANCE.get(LogicalSide.SERVER);
     }
@@ -26,11 +26,14 @@ import net.minecraftforge.fml.network.NetworkDirection;
 import net.minecraftforge.fml.network.NetworkEvent;
 import net.minecraftforge.fml.network.NetworkHooks;
 import net.minecraftforge.fml.network.NetworkInstance;
+import net.minecraftforge.fml.network.NetworkStatistics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
 
+import javax.annotation.Nullable;
+
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.BiConsumer;
@@ -44,12 +47,15 @@ public class IndexedMessageCodec
     private final Short2ObjectArrayMap<MessageHandler<?>> indicies = new Short2ObjectArrayMap<>();
     private final Object2ObjectArrayMap<Class<?>, MessageHandler<?>> types = new Object2ObjectArrayMap<>();
     private final NetworkInstance networkInstance;
+    @Nullable
+    private final NetworkStatistics.ChannelStatistics statistics;
 
     public IndexedMessageCodec() {
         this(null);
     }
     public IndexedMessageCodec(final NetworkInstance instance) {
         this.networkInstance = instance;
+        this.statistics = instance == null ? null : NetworkStatistics.forChannel(instance.getChannelName());
     }
 
     @SuppressWarnings("unchecked")
@@ -115,9 +121,17 @@ public class IndexedMessageCodec
         }
     }
 
-    private static <M> void tryDecode(PacketBuffer payload, Supplier<NetworkEvent.Context> context, int payloadIndex, MessageHandler<M> codec)
+    private static <M> void tryDecode(PacketBuffer payload, Supplier<NetworkEvent.Context> context, int payloadIndex, MessageHandler<M> codec, @Nullable NetworkStatistics.MessageStatistics stats)
     {
-        codec.decoder.map(d->d.apply(payload)).
+        final int size = payload.readableBytes();
+        codec.decoder.map(d->{
+                    if (stats == null)
+                        return d.apply(payload);
+                    long start = System.nanoTime();
+                    M msg = d.apply(payload);
+                    stats.recordDecode(size, System.nanoTime() - start);
+                    return msg;
+                }).
                 map(p->{
                     // Only run the loginIndex function for payloadIndexed packets (login)
                     if (payloadIndex != Integer.MIN_VALUE)
@@ -144,7 +158,14 @@ public class IndexedMessageCodec
             LOGGER.error(SIMPLENET, "Received invalid message {} on channel {}", message.getClass().getName(), Optional.ofNullable(networkInstance).map(NetworkInstance::getChannelName).map(Objects::toString).orElse("MISSING CHANNEL"));
             throw new IllegalArgumentException("Invalid message "+message.getClass().getName());
         }
-        return tryEncode(target, message, messageHandler);
+        if (statistics == null || !NetworkStatistics.isEnabled())
+            return tryEncode(target, message, messageHandler);
+
+        final int start = target.writerIndex();
+        final long time = System.nanoTime();
+        int ret = tryEncode(target, message, messageHandler);
+        statistics.getMessage(messageHandler.index).recordEncode(target.writerIndex() - start, System.nanoTime() - time);
+        return ret;
     }
 
     void consume(PacketBuffer payload, int payloadIndex, Supplier<NetworkEvent.Context> context) {
@@ -159,7 +180,7 @@ public class IndexedMessageCodec
             return;
         }
         NetworkHooks.validatePacketDirection(context.get().getDirection(), messageHandler.networkDirection, context.get().getNetworkManager());
-        tryDecode(payload, context, payloadIndex, messageHandler);
+        tryDecode(payload, context, payloadIndex, messageHandler, statistics != null && NetworkStatistics.isEnabled() ? statistics.getMessage(discriminator) : null);
     }
 
     <MSG> MessageHandler<MSG> addCodecIndex(int index, Class<MSG> messageType, BiConsumer<MSG, PacketBuffer> encoder, Function<PacketBuffer, MSG> decoder, BiConsumer<MSG, Supplier<NetworkEvent.Context>> messageConsumer, final Optional<NetworkDirection> networkDirection) {
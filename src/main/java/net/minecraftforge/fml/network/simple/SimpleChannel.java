@@ -43,8 +43,10 @@ public class SimpleChannel
 {
     private final NetworkInstance instance;
     private final IndexedMessageCodec indexedCodec;
+    private final NetworkStatistics.ChannelStatistics statistics;
     private final Optional<Consumer<NetworkEvent.ChannelRegistrationChangeEvent>> registryChangeConsumer;
     private List<Function<Boolean, ? extends List<? extends Pair<String,?>>>> loginPackets;
+    private boolean batching = false;
 
     public SimpleChannel(NetworkInstance instance) {
         this(instance, Optional.empty());
@@ -53,6 +55,7 @@ public class SimpleChannel
     private SimpleChannel(NetworkInstance instance, Optional<Consumer<NetworkEvent.ChannelRegistrationChangeEvent>> registryChangeNotify) {
         this.instance = instance;
         this.indexedCodec = new IndexedMessageCodec(instance);
+        this.statistics = NetworkStatistics.forChannel(instance.getChannelName());
         this.loginPackets = new ArrayList<>();
         instance.addListener(this::networkEventListener);
         instance.addGatherListener(this::networkLoginGather);
@@ -106,7 +109,33 @@ public class SimpleChannel
 
     public <MSG> void sendTo(MSG message, NetworkManager manager, NetworkDirection direction)
     {
-        manager.sendPacket(toVanillaPacket(message, direction));
+        if (batching && direction == NetworkDirection.PLAY_TO_CLIENT)
+            PacketBatcher.write(manager, toVanillaPacket(message, direction));
+        else
+            manager.sendPacket(toVanillaPacket(message, direction));
+    }
+
+    /**
+     * Enables or disables batching of messages sent to clients by this channel.
+     *
+     * When enabled, messages sent through {@link #send(PacketDistributor.PacketTarget, Object)} and
+     * {@link #sendTo(Object, NetworkManager, NetworkDirection)} are written to the target connections
+     * without flushing them, and every connection is flushed once at the end of the server tick.
+     * Messages are still encoded once per send and keep their order on every connection.
+     * This is meant for channels sending many small updates per tick.
+     *
+     * @param batching True to enable batching
+     * @return this
+     */
+    public SimpleChannel setBatching(boolean batching)
+    {
+        this.batching = batching;
+        return this;
+    }
+
+    public boolean isBatching()
+    {
+        return batching;
     }
 
     /**
@@ -121,7 +150,12 @@ public class SimpleChannel
      * @param <MSG> The type of the message
      */
     public <MSG> void send(PacketDistributor.PacketTarget target, MSG message) {
-        target.send(toVanillaPacket(message, target.getDirection()));
+        if (NetworkStatistics.isEnabled())
+            statistics.recordSend(target);
+        if (batching && target.getDirection() == NetworkDirection.PLAY_TO_CLIENT)
+            target.sendBatched(toVanillaPacket(message, target.getDirection()));
+        else
+            target.send(toVanillaPacket(message, target.getDirection()));
     }
 
     public <MSG> IPacket<?> toVanillaPacket(MSG message, NetworkDirection direction)
@@ -0,0 +1,158 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.items;
+
+import java.util.function.Predicate;
+
+import net.minecraft.item.ItemStack;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Optional extension of {@link IItemHandler} for operations on many slots at once.
+ *
+ * Every operation behaves exactly like the equivalent loop over the single slot methods, which is what the default
+ * implementations do. A slot counts as full when it holds at least as many items as both {@link #getSlotLimit(int)}
+ * and the max stack size of the item in it allow, so a slot holding 16 ender pearls is full. Handlers with many slots can override them with something faster, see {@link ItemStackHandler}.
+ * Helpers like {@link ItemHandlerHelper#insertItemStacked} use these methods when the handler implements this interface.
+ */
+public interface IBulkItemHandler extends IItemHandler
+{
+    /**
+     * Inserts the stack into the slots from fromSlot to toSlot in order, until nothing is left.
+     * Same as calling {@link #insertItem(int, ItemStack, boolean)} for each of the slots.
+     *
+     * @param fromSlot First slot to insert into, inclusive
+     * @param toSlot   Last slot to insert into, exclusive
+     * @param stack    ItemStack to insert. This must not be modified by the handler.
+     * @param simulate If true, the insertion is only simulated
+     * @return The remaining ItemStack that was not inserted
+     */
+    @Nonnull
+    default ItemStack insertItem(int fromSlot, int toSlot, @Nonnull ItemStack stack, boolean simulate)
+    {
+        for (int slot = fromSlot; slot < toSlot && !stack.isEmpty(); slot++)
+            stack = insertItem(slot, stack, simulate);
+        return stack;
+    }
+
+    /**
+     * Inserts the stack into the handler, filling up already present stacks first.
+     * Same as the loop in {@link ItemHandlerHelper#insertItemStacked}.
+     *
+     * @return The remaining ItemStack that was not inserted
+     */
+    @Nonnull
+    default ItemStack insertItemStacked(@Nonnull ItemStack stack, boolean simulate)
+    {
+        if (stack.isEmpty())
+            return stack;
+        if (!stack.isStackable())
+            return insertItem(0, getSlots(), stack, simulate);
+
+        for (int slot = 0; slot < getSlots() && !stack.isEmpty(); slot++)
+        {
+            if (ItemHandlerHelper.canItemStacksStackRelaxed(getStackInSlot(slot), stack))
+                stack = insertItem(slot, stack, simulate);
+        }
+        for (int slot = 0; slot < getSlots() && !stack.isEmpty(); slot++)
+        {
+            if (getStackInSlot(slot).isEmpty())
+                stack = insertItem(slot, stack, simulate);
+        }
+        return stack;
+    }
+
+    /**
+     * Extracts up to amount items that match the filter. Starts at the first slot holding a matching stack that can be
+     * extracted from, and takes more from the following slots as long as they stack with what was already extracted.
+     * No more than the max stack size of the item is extracted.
+     *
+     * @param filter   Tested against the stack in each slot
+     * @param amount   Amount to extract
+     * @param simulate If true, the extraction is only simulated
+     * @return The extracted ItemStack, empty if nothing could be extracted
+     */
+    @Nonnull
+    default ItemStack extractItem(Predicate<ItemStack> filter, int amount, boolean simulate)
+    {
+        ItemStack result = ItemStack.EMPTY;
+        for (int slot = 0; slot < getSlots() && amount > 0; slot++)
+        {
+            ItemStack inSlot = getStackInSlot(slot);
+            if (inSlot.isEmpty() || !filter.test(inSlot) || (!result.isEmpty() && !ItemHandlerHelper.canItemStacksStack(result, inSlot)))
+                continue;
+
+            ItemStack extracted = extractItem(slot, result.isEmpty() ? Math.min(amount, inSlot.getMaxStackSize()) : amount, simulate);
+            if (extracted.isEmpty())
+                continue;
+            if (result.isEmpty())
+            {
+                result = extracted;
+                amount = Math.min(amount, result.getMaxStackSize());
+            }
+            else
+            {
+                result.grow(extracted.getCount());
+            }
+            amount -= extracted.getCount();
+        }
+        return result;
+    }
+
+    /**
+     * A slot is full if its stack is not empty and its count is at least the smaller of {@link #getSlotLimit(int)} and the max stack size of the item.
+     *
+     * @param fromSlot First slot to check, inclusive
+     * @param toSlot   Last slot to check, exclusive
+     * @return The first slot in the range that is not full, or -1 if there is none
+     */
+    default int findFirstNonFullSlot(int fromSlot, int toSlot)
+    {
+        for (int slot = fromSlot; slot < toSlot; slot++)
+        {
+            ItemStack stack = getStackInSlot(slot);
+            if (stack.isEmpty() || stack.getCount() < Math.min(getSlotLimit(slot), stack.getMaxStackSize()))
+                return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * @return True if every slot is empty
+     */
+    default boolean isEmpty()
+    {
+        for (int slot = 0; slot < getSlots(); slot++)
+        {
+            if (!getStackInSlot(slot).isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return True if every slot is full
+     */
+    default boolean isFull()
+    {
+        return findFirstNonFullSlot(0, getSlots()) == -1;
+    }
+}
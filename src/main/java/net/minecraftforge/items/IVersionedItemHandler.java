@@ -0,0 +1,43 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.items;
+
+/**
+ * Optional extension of {@link IItemHandler} for handlers that keep track of their changes.
+ *
+ * Anything that polls a handler, like a hopper, can remember the version it last saw and skip its work while the
+ * version stays the same. See {@link VanillaInventoryCodeHooks} for how hoppers use it.
+ */
+public interface IVersionedItemHandler extends IItemHandler
+{
+    /**
+     * Returned by {@link #getChangeVersion()} when changes are currently not tracked.
+     */
+    long UNTRACKED = -1;
+
+    /**
+     * The version must change whenever the contents of any slot change, or when the handler starts accepting
+     * something it did not accept before, for example because {@link #isItemValid} or a slot limit depends on
+     * state outside the handler.
+     *
+     * @return The current version, or {@link #UNTRACKED} if changes cannot be tracked right now
+     */
+    long getChangeVersion();
+}
@@ -39,6 +39,9 @@ public class ItemHandlerHelper
         if (dest == null || stack.isEmpty())
             return stack;
 
+        if (dest instanceof IBulkItemHandler)
+            return ((IBulkItemHandler)dest).insertItem(0, dest.getSlots(), stack, simulate);
+
         for (int i = 0; i < dest.getSlots(); i++)
         {
             stack = dest.insertItem(i, stack, simulate);
@@ -105,6 +108,9 @@ public class ItemHandlerHelper
         if (inventory == null || stack.isEmpty())
             return stack;
 
+        if (inventory instanceof IBulkItemHandler)
+            return ((IBulkItemHandler)inventory).insertItemStacked(stack, simulate);
+
         // not stackable -> just insert into a new slot
         if (!stack.isStackable())
         {
@@ -19,6 +19,7 @@
 
 package net.minecraftforge.items;
 
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.nbt.ListNBT;
@@ -27,11 +28,68 @@ import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.common.util.INBTSerializable;
 
 import javax.annotation.Nonnull;
-
-public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, INBTSerializable<CompoundNBT>
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The bulk operations of {@link IBulkItemHandler} use an index of the slot contents: the slots holding each item, and which slots
+ * are empty or full. It is built on first use, and kept up to date by the methods of this class. Stacks returned by
+ * {@link #getStackInSlot} may be changed in place by the caller, like containers do, so those slots are checked again before
+ * the index is used next. Subclasses that change the contents of {@link #stacks} directly must call {@link #invalidateIndex()}.
+ *
+ * If a subclass overrides how slots are accessed or modified, or which items and how many of them a slot accepts, the bulk
+ * operations fall back to checking every slot, as such limits may depend on state the index does not know about.
+ *
+ * The same methods update the {@link IVersionedItemHandler change version}. A stack handed out by {@link #getStackInSlot} counts
+ * as changed the next time the version is read.
+ */
+public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, IBulkItemHandler, IVersionedItemHandler, INBTSerializable<CompoundNBT>
 {
+    private static final ClassValue<Boolean> CAN_INDEX = new ClassValue<Boolean>()
+    {
+        @Override
+        protected Boolean computeValue(Class<?> type)
+        {
+            return !overrides(type, "getSlots") &&
+                   !overrides(type, "getStackInSlot", int.class) &&
+                   !overrides(type, "setStackInSlot", int.class, ItemStack.class) &&
+                   !overrides(type, "insertItem", int.class, ItemStack.class, boolean.class) &&
+                   !overrides(type, "extractItem", int.class, int.class, boolean.class) &&
+                   !overrides(type, "getSlotLimit", int.class) &&
+                   !overrides(type, "getStackLimit", int.class, ItemStack.class) &&
+                   !overrides(type, "isItemValid", int.class, ItemStack.class);
+        }
+
+        private boolean overrides(Class<?> type, String name, Class<?>... parameters)
+        {
+            for (Class<?> cls = type; cls != ItemStackHandler.class; cls = cls.getSuperclass())
+            {
+                try
+                {
+                    cls.getDeclaredMethod(name, parameters);
+                    return true;
+                }
+                catch (NoSuchMethodException e)
+                {
+                    // Not declared at this level, keep looking in the superclasses
+                }
+            }
+            return false;
+        }
+    };
+
     protected NonNullList<ItemStack> stacks;
 
+    private NonNullList<ItemStack> indexedStacks; // The list the index was built for, a different list means the index has to be rebuilt
+    private Item[] indexedSlotItems;
+    private final Map<Item, BitSet> slotsByItem = new IdentityHashMap<>();
+    private final BitSet emptySlots = new BitSet();
+    private final BitSet fullSlots = new BitSet();
+    private final BitSet exposedSlots = new BitSet(); // Slots whose stack was handed out by getStackInSlot, and may have been changed in place
+    private long changeVersion;
+
     public ItemStackHandler()
     {
         this(1);
@@ -50,6 +108,8 @@ public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, I
     public void setSize(int size)
     {
         stacks = NonNullList.withSize(size, ItemStack.EMPTY);
+        exposedSlots.clear();
+        changeVersion++;
     }
 
     @Override
@@ -57,6 +117,7 @@ public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, I
     {
         validateSlotIndex(slot);
         this.stacks.set(slot, stack);
+        updateIndex(slot);
         onContentsChanged(slot);
     }
 
@@ -71,7 +132,10 @@ public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, I
     public ItemStack getStackInSlot(int slot)
     {
         validateSlotIndex(slot);
-        return this.stacks.get(slot);
+        ItemStack stack = this.stacks.get(slot);
+        if (stack != ItemStack.EMPTY)
+            exposedSlots.set(slot);
+        return stack;
     }
 
     @Override
@@ -108,11 +172,14 @@ public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, I
             if (existing.isEmpty())
             {
                 this.stacks.set(slot, reachedLimit ? ItemHandlerHelper.copyStackWithSize(stack, limit) : stack);
+                if (!reachedLimit)
+                    exposedSlots.set(slot); // The caller still holds the stack that is now in the slot
             }
             else
             {
                 existing.grow(reachedLimit ? limit : stack.getCount());
             }
+            updateIndex(slot);
             onContentsChanged(slot);
         }
 
@@ -140,6 +207,7 @@ public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, I
             if (!simulate)
             {
                 this.stacks.set(slot, ItemStack.EMPTY);
+                updateIndex(slot);
                 onContentsChanged(slot);
                 return existing;
             }
@@ -153,6 +221,7 @@ public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, I
             if (!simulate)
             {
                 this.stacks.set(slot, ItemHandlerHelper.copyStackWithSize(existing, existing.getCount() - toExtract));
+                updateIndex(slot);
                 onContentsChanged(slot);
             }
 
@@ -215,6 +284,186 @@ public class ItemStackHandler implements IItemHandler, IItemHandlerModifiable, I
         onLoad();
     }
 
+    @Override
+    @Nonnull
+    public ItemStack insertItem(int fromSlot, int toSlot, @Nonnull ItemStack stack, boolean simulate)
+    {
+        if (!canIndex())
+            return IBulkItemHandler.super.insertItem(fromSlot, toSlot, stack, simulate);
+
+        // Only slots that hold the same item or are empty can accept the stack, visit them in slot order
+        BitSet sameItem = stack.isEmpty() ? null : slotsByItem.get(stack.getItem());
+        int same = sameItem == null ? -1 : sameItem.nextSetBit(fromSlot);
+        int empty = emptySlots.nextSetBit(fromSlot);
+        while (!stack.isEmpty())
+        {
+            int slot = same == -1 ? empty : empty == -1 ? same : Math.min(same, empty);
+            if (slot == -1 || slot >= toSlot)
+                break;
+            if (slot == same)
+                same = sameItem.nextSetBit(slot + 1);
+            if (slot == empty)
+                empty = emptySlots.nextSetBit(slot + 1);
+            stack = insertItem(slot, stack, simulate);
+        }
+        return stack;
+    }
+
+    @Override
+    @Nonnull
+    public ItemStack insertItemStacked(@Nonnull ItemStack stack, boolean simulate)
+    {
+        if (!canIndex() || stack.isEmpty())
+            return IBulkItemHandler.super.insertItemStacked(stack, simulate);
+        if (!stack.isStackable())
+            return insertItem(0, getSlots(), stack, simulate);
+
+        BitSet sameItem = slotsByItem.get(stack.getItem());
+        for (int slot = sameItem == null ? -1 : sameItem.nextSetBit(0); slot != -1 && !stack.isEmpty(); slot = sameItem.nextSetBit(slot + 1))
+            stack = insertItem(slot, stack, simulate);
+        for (int slot = emptySlots.nextSetBit(0); slot != -1 && !stack.isEmpty(); slot = emptySlots.nextSetBit(slot + 1))
+            stack = insertItem(slot, stack, simulate);
+        return stack;
+    }
+
+    @Override
+    @Nonnull
+    public ItemStack extractItem(Predicate<ItemStack> filter, int amount, boolean simulate)
+    {
+        if (!canIndex())
+            return IBulkItemHandler.super.extractItem(filter, amount, simulate);
+
+        ItemStack result = ItemStack.EMPTY;
+        BitSet sameItem = null;
+        for (int slot = emptySlots.nextClearBit(0); slot != -1 && slot < stacks.size() && amount > 0; slot = sameItem == null ? emptySlots.nextClearBit(slot + 1) : sameItem.nextSetBit(slot + 1))
+        {
+            ItemStack inSlot = stacks.get(slot);
+            if (inSlot.isEmpty() || !filter.test(inSlot) || (!result.isEmpty() && !ItemHandlerHelper.canItemStacksStack(result, inSlot)))
+                continue;
+
+            ItemStack extracted = extractItem(slot, result.isEmpty() ? Math.min(amount, inSlot.getMaxStackSize()) : amount, simulate);
+            if (extracted.isEmpty())
+                continue;
+            if (result.isEmpty())
+            {
+                result = extracted;
+                amount = Math.min(amount, result.getMaxStackSize());
+                sameItem = slotsByItem.get(result.getItem()); // Only slots with the same item can add to the result
+            }
+            else
+            {
+                result.grow(extracted.getCount());
+            }
+            amount -= extracted.getCount();
+        }
+        return result;
+    }
+
+    @Override
+    public int findFirstNonFullSlot(int fromSlot, int toSlot)
+    {
+        if (!canIndex())
+            return IBulkItemHandler.super.findFirstNonFullSlot(fromSlot, toSlot);
+        int slot = fullSlots.nextClearBit(fromSlot);
+        return slot < toSlot ? slot : -1;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        if (!canIndex())
+            return IBulkItemHandler.super.isEmpty();
+        return emptySlots.nextClearBit(0) >= stacks.size();
+    }
+
+    /**
+     * Makes the bulk operations rebuild their index of the slot contents, and changes the {@link #getChangeVersion() version}.
+     * Needed if the contents of {@link #stacks} were changed without using the methods of this class.
+     */
+    protected void invalidateIndex()
+    {
+        indexedStacks = null;
+        changeVersion++;
+    }
+
+    @Override
+    public long getChangeVersion()
+    {
+        // Subclasses that override how slots are modified may change them without updating the version
+        if (!CAN_INDEX.get(getClass()))
+            return UNTRACKED;
+        // Stacks handed out by getStackInSlot may have been changed in place since, count that as a change
+        updateExposedSlots();
+        return changeVersion;
+    }
+
+    /**
+     * @return True if the index can be used, building or updating it if needed
+     */
+    private boolean canIndex()
+    {
+        if (!CAN_INDEX.get(getClass()))
+            return false;
+        if (indexedStacks != stacks)
+        {
+            slotsByItem.clear();
+            emptySlots.clear();
+            fullSlots.clear();
+            exposedSlots.clear();
+            indexedStacks = stacks;
+            indexedSlotItems = new Item[stacks.size()];
+            for (int slot = 0; slot < stacks.size(); slot++)
+                updateIndex(slot);
+        }
+        else
+        {
+            updateExposedSlots();
+        }
+        return true;
+    }
+
+    /**
+     * Updates the index and the version for the slots whose stacks were handed out since the last update,
+     * the stacks may have been grown, shrunk or emptied in place.
+     */
+    private void updateExposedSlots()
+    {
+        for (int slot = exposedSlots.nextSetBit(0); slot != -1 && slot < stacks.size(); slot = exposedSlots.nextSetBit(slot + 1))
+            updateIndex(slot);
+        exposedSlots.clear();
+    }
+
+    private void updateIndex(int slot)
+    {
+        changeVersion++;
+        if (indexedStacks != stacks)
+            return; // Not built yet, or rebuilt on next use
+
+        Item oldItem = indexedSlotItems[slot];
+        if (oldItem != null)
+        {
+            BitSet slots = slotsByItem.get(oldItem);
+            slots.clear(slot);
+            if (slots.isEmpty())
+                slotsByItem.remove(oldItem);
+        }
+
+        ItemStack stack = stacks.get(slot);
+        if (stack.isEmpty())
+        {
+            indexedSlotItems[slot] = null;
+            emptySlots.set(slot);
+            fullSlots.clear(slot);
+        }
+        else
+        {
+            indexedSlotItems[slot] = stack.getItem();
+            slotsByItem.computeIfAbsent(stack.getItem(), k -> new BitSet()).set(slot);
+            emptySlots.clear(slot);
+            fullSlots.set(slot, stack.getCount() >= getStackLimit(slot, stack));
+        }
+    }
+
     protected void validateSlotIndex(int slot)
     {
         if (slot < 0 || slot >= stacks.size())
@@ -20,6 +20,7 @@
 package net.minecraftforge.items;
 
 import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
 import net.minecraft.block.DropperBlock;
 import net.minecraft.block.HopperBlock;
 import net.minecraft.item.ItemStack;
@@ -31,17 +32,34 @@ import net.minecraft.util.Direction;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
+import net.minecraftforge.common.ForgeConfig;
+import net.minecraftforge.common.capabilities.BlockCapabilityCache;
 import net.minecraftforge.common.util.LazyOptional;
+import net.minecraftforge.common.util.NonNullConsumer;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
+import java.util.WeakHashMap;
 
 public class VanillaInventoryCodeHooks
 {
+    /**
+     * When {@link ForgeConfig.Server#dormantHoppers} is enabled, a hopper that failed to move anything from or to an
+     * {@link IVersionedItemHandler} stops trying until the handler's version changes, its own contents change, the block
+     * next to it changes or the handler's capability is invalidated. As a safety net against changes that the version
+     * does not see, it tries again at least every {@link #MAX_DORMANT_TICKS} ticks.
+     */
+    private static final int MAX_DORMANT_TICKS = 100;
+    private static final Map<HopperTileEntity, Dormancy> DORMANT_INSERT = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<HopperTileEntity, Dormancy> DORMANT_EXTRACT = Collections.synchronizedMap(new WeakHashMap<>());
+
     /**
      * Copied from TileEntityHopper#captureDroppedItems and added capability support
      * @return Null if we did nothing {no IItemHandler}, True if we moved an item, False if we moved no items
@@ -49,40 +67,72 @@ public class VanillaInventoryCodeHooks
     @Nullable
     public static Boolean extractHook(IHopper dest)
     {
+        if (dest instanceof HopperTileEntity && isDormant(DORMANT_EXTRACT, (HopperTileEntity)dest, Direction.UP))
+            return false;
+
         return getItemHandler(dest, Direction.UP)
                 .map(itemHandlerResult -> {
                     IItemHandler handler = itemHandlerResult.getKey();
 
+                    if (handler instanceof IBulkItemHandler)
+                    {
+                        // Only visits slots that hold something, and extracts from the first one that fits right away
+                        ItemStack extractItem = ((IBulkItemHandler)handler).extractItem(stack -> getHopperSlot(dest, stack) != -1, 1, false);
+                        if (extractItem.isEmpty())
+                        {
+                            if (dest instanceof HopperTileEntity)
+                                makeDormant(DORMANT_EXTRACT, (HopperTileEntity)dest, Direction.UP, itemHandlerResult);
+                            return false;
+                        }
+                        putInHopperSlot(dest, getHopperSlot(dest, extractItem), extractItem);
+                        return true;
+                    }
+
                     for (int i = 0; i < handler.getSlots(); i++)
                     {
                         ItemStack extractItem = handler.extractItem(i, 1, true);
                         if (!extractItem.isEmpty())
                         {
-                            for (int j = 0; j < dest.getSizeInventory(); j++)
+                            int j = getHopperSlot(dest, extractItem);
+                            if (j != -1)
                             {
-                                ItemStack destStack = dest.getStackInSlot(j);
-                                if (dest.isItemValidForSlot(j, extractItem) && (destStack.isEmpty() || destStack.getCount() < destStack.getMaxStackSize() && destStack.getCount() < dest.getInventoryStackLimit() && ItemHandlerHelper.canItemStacksStack(extractItem, destStack)))
-                                {
-                                    extractItem = handler.extractItem(i, 1, false);
-                                    if (destStack.isEmpty())
-                                        dest.setInventorySlotContents(j, extractItem);
-                                    else
-                                    {
-                                        destStack.grow(1);
-                                        dest.setInventorySlotContents(j, destStack);
-                                    }
-                                    dest.markDirty();
-                                    return true;
-                                }
+                                putInHopperSlot(dest, j, handler.extractItem(i, 1, false));
+                                return true;
                             }
                         }
                     }
 
+                    if (dest instanceof HopperTileEntity)
+                        makeDormant(DORMANT_EXTRACT, (HopperTileEntity)dest, Direction.UP, itemHandlerResult);
                     return false;
                 })
                 .orElse(null); // TODO bad null
     }
 
+    private static int getHopperSlot(IHopper dest, ItemStack stack)
+    {
+        for (int j = 0; j < dest.getSizeInventory(); j++)
+        {
+            ItemStack destStack = dest.getStackInSlot(j);
+            if (dest.isItemValidForSlot(j, stack) && (destStack.isEmpty() || destStack.getCount() < destStack.getMaxStackSize() && destStack.getCount() < dest.getInventoryStackLimit() && ItemHandlerHelper.canItemStacksStack(stack, destStack)))
+                return j;
+        }
+        return -1;
+    }
+
+    private static void putInHopperSlot(IHopper dest, int slot, ItemStack stack)
+    {
+        ItemStack destStack = dest.getStackInSlot(slot);
+        if (destStack.isEmpty())
+            dest.setInventorySlotContents(slot, stack);
+        else
+        {
+            destStack.grow(1);
+            dest.setInventorySlotContents(slot, destStack);
+        }
+        dest.markDirty();
+    }
+
     /**
      * Copied from BlockDropper#dispense and added capability support
      */
@@ -119,12 +169,16 @@ public class VanillaInventoryCodeHooks
     public static boolean insertHook(HopperTileEntity hopper)
     {
         Direction hopperFacing = hopper.getBlockState().get(HopperBlock.FACING);
+        if (isDormant(DORMANT_INSERT, hopper, hopperFacing))
+            return false;
+
         return getItemHandler(hopper, hopperFacing)
                 .map(destinationResult -> {
                     IItemHandler itemHandler = destinationResult.getKey();
                     Object destination = destinationResult.getValue();
                     if (isFull(itemHandler))
                     {
+                        makeDormant(DORMANT_INSERT, hopper, hopperFacing, destinationResult);
                         return false;
                     }
                     else
@@ -146,14 +200,134 @@ public class VanillaInventoryCodeHooks
                             }
                         }
 
+                        makeDormant(DORMANT_INSERT, hopper, hopperFacing, destinationResult);
                         return false;
                     }
                 })
                 .orElse(false);
     }
 
+    private static boolean isDormant(Map<HopperTileEntity, Dormancy> dormant, HopperTileEntity hopper, Direction side)
+    {
+        if (!ForgeConfig.SERVER.dormantHoppers.get())
+            return false;
+        Dormancy dormancy = dormant.get(hopper);
+        return dormancy != null && dormancy.isValid(hopper, side);
+    }
+
+    private static void makeDormant(Map<HopperTileEntity, Dormancy> dormant, HopperTileEntity hopper, Direction side, Pair<IItemHandler, Object> neighbor)
+    {
+        // Only tile entities can be watched for removal and capability invalidation
+        if (!ForgeConfig.SERVER.dormantHoppers.get() || !(neighbor.getKey() instanceof IVersionedItemHandler) || !(neighbor.getValue() instanceof TileEntity))
+            return;
+        long version = ((IVersionedItemHandler)neighbor.getKey()).getChangeVersion();
+        if (version == IVersionedItemHandler.UNTRACKED)
+            return;
+
+        TileEntity tileEntity = (TileEntity)neighbor.getValue();
+        LazyOptional<IItemHandler> capability = BlockCapabilityCache.get(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, hopper.getWorld(), tileEntity.getPos(), side.getOpposite()).getCapability();
+        // Keep listening with the same watch as long as possible, every listener stays registered until the capability is invalidated
+        Dormancy previous = dormant.get(hopper);
+        CapabilityWatch watch;
+        if (previous != null && previous.watch.isWatching(capability))
+        {
+            watch = previous.watch;
+        }
+        else
+        {
+            watch = new CapabilityWatch(capability);
+            capability.addListener(watch);
+        }
+        dormant.put(hopper, new Dormancy(hopper, tileEntity, neighbor.getKey(), version, watch));
+    }
+
+    private static class CapabilityWatch implements NonNullConsumer<LazyOptional<IItemHandler>>
+    {
+        private final WeakReference<LazyOptional<IItemHandler>> capability;
+        private volatile boolean invalidated;
+
+        private CapabilityWatch(LazyOptional<IItemHandler> capability)
+        {
+            this.capability = new WeakReference<>(capability);
+        }
+
+        private boolean isWatching(LazyOptional<IItemHandler> capability)
+        {
+            return !invalidated && this.capability.get() == capability;
+        }
+
+        @Override
+        public void accept(LazyOptional<IItemHandler> capability)
+        {
+            invalidated = true;
+        }
+    }
+
+    /**
+     * The state a hopper saw when it last failed to move anything from or to a neighbor.
+     */
+    private static class Dormancy
+    {
+        private final BlockPos neighborPos;
+        private final BlockState neighborState;
+        private final WeakReference<IItemHandler> handler;
+        private final long version;
+        private final ItemStack[] hopperStacks;
+        private final int[] hopperCounts;
+        private final long since;
+        private final CapabilityWatch watch;
+
+        private Dormancy(HopperTileEntity hopper, TileEntity neighbor, IItemHandler handler, long version, CapabilityWatch watch)
+        {
+            this.neighborPos = neighbor.getPos();
+            this.neighborState = hopper.getWorld().getBlockState(neighborPos);
+            this.handler = new WeakReference<>(handler);
+            this.version = version;
+            this.hopperStacks = new ItemStack[hopper.getSizeInventory()];
+            this.hopperCounts = new int[hopperStacks.length];
+            for (int i = 0; i < hopperStacks.length; i++)
+            {
+                hopperStacks[i] = hopper.getStackInSlot(i);
+                hopperCounts[i] = hopperStacks[i].getCount();
+            }
+            this.since = hopper.getWorld().getGameTime();
+            this.watch = watch;
+        }
+
+        private boolean isValid(HopperTileEntity hopper, Direction side)
+        {
+            World world = hopper.getWorld();
+            if (watch.invalidated || world.getGameTime() - since >= MAX_DORMANT_TICKS)
+                return false;
+            IItemHandler current = handler.get();
+            if (current == null || ((IVersionedItemHandler)current).getChangeVersion() != version)
+                return false;
+            // Catches a different neighbor after the hopper was turned, and changes to the neighbor block that keep its tile entity
+            if (!neighborPos.equals(hopper.getPos().offset(side)) || world.getBlockState(neighborPos) != neighborState)
+                return false;
+            for (int i = 0; i < hopperStacks.length; i++)
+            {
+                ItemStack stack = hopper.getStackInSlot(i);
+                if (stack != hopperStacks[i] || stack.getCount() != hopperCounts[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
     private static ItemStack putStackInInventoryAllSlots(TileEntity source, Object destination, IItemHandler destInventory, ItemStack stack)
     {
+        if (destInventory instanceof IBulkItemHandler)
+        {
+            IBulkItemHandler bulk = (IBulkItemHandler)destInventory;
+            // Same as the loop below, except that the whole stack does not have to fit into one slot
+            boolean inventoryWasEmpty = bulk.isEmpty();
+            ItemStack remainder = bulk.insertItem(0, bulk.getSlots(), stack, false);
+            if (remainder.getCount() < stack.getCount())
+                onInserted(source, destination, inventoryWasEmpty);
+            return remainder;
+        }
+
         for (int slot = 0; slot < destInventory.getSlots() && !stack.isEmpty(); slot++)
         {
             stack = insertStack(source, destination, destInventory, stack, slot);
@@ -188,27 +362,32 @@ public class VanillaInventoryCodeHooks
 
             if (insertedItem)
             {
-                if (inventoryWasEmpty && destination instanceof HopperTileEntity)
-                {
-                    HopperTileEntity destinationHopper = (HopperTileEntity)destination;
+                onInserted(source, destination, inventoryWasEmpty);
+            }
+        }
+
+        return stack;
+    }
+
+    private static void onInserted(TileEntity source, Object destination, boolean inventoryWasEmpty)
+    {
+        if (inventoryWasEmpty && destination instanceof HopperTileEntity)
+        {
+            HopperTileEntity destinationHopper = (HopperTileEntity)destination;
 
-                    if (!destinationHopper.mayTransfer())
+            if (!destinationHopper.mayTransfer())
+            {
+                int k = 0;
+                if (source instanceof HopperTileEntity)
+                {
+                    if (destinationHopper.getLastUpdateTime() >= ((HopperTileEntity) source).getLastUpdateTime())
                     {
-                        int k = 0;
-                        if (source instanceof HopperTileEntity)
-                        {
-                            if (destinationHopper.getLastUpdateTime() >= ((HopperTileEntity) source).getLastUpdateTime())
-                            {
-                                k = 1;
-                            }
-                        }
-                        destinationHopper.setTransferCooldown(8 - k);
+                        k = 1;
                     }
                 }
+                destinationHopper.setTransferCooldown(8 - k);
             }
         }
-
-        return stack;
     }
 
     private static Optional<Pair<IItemHandler, Object>> getItemHandler(IHopper hopper, Direction hopperFacing)
@@ -221,10 +400,13 @@ public class VanillaInventoryCodeHooks
 
     private static boolean isFull(IItemHandler itemHandler)
     {
+        if (itemHandler instanceof IBulkItemHandler)
+            return ((IBulkItemHandler)itemHandler).isFull();
         for (int slot = 0; slot < itemHandler.getSlots(); slot++)
         {
             ItemStack stackInSlot = itemHandler.getStackInSlot(slot);
-            if (stackInSlot.isEmpty() || stackInSlot.getCount() < itemHandler.getSlotLimit(slot))
+            // Same definition of a full slot as IBulkItemHandler.findFirstNonFullSlot
+            if (stackInSlot.isEmpty() || stackInSlot.getCount() < Math.min(itemHandler.getSlotLimit(slot), stackInSlot.getMaxStackSize()))
             {
                 return false;
             }
@@ -234,6 +416,8 @@ public class VanillaInventoryCodeHooks
 
     private static boolean isEmpty(IItemHandler itemHandler)
     {
+        if (itemHandler instanceof IBulkItemHandler)
+            return ((IBulkItemHandler)itemHandler).isEmpty();
         for (int slot = 0; slot < itemHandler.getSlots(); slot++)
         {
             ItemStack stackInSlot = itemHandler.getStackInSlot(slot);
@@ -251,16 +435,13 @@ public class VanillaInventoryCodeHooks
         int j = MathHelper.floor(y);
         int k = MathHelper.floor(z);
         BlockPos blockpos = new BlockPos(i, j, k);
-        net.minecraft.block.BlockState state = worldIn.getBlockState(blockpos);
-
-        if (state.hasTileEntity())
+        // Hoppers ask for the same neighbor every tick, the cache only looks the capability up again once it changed
+        BlockCapabilityCache<IItemHandler> cache = BlockCapabilityCache.get(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, worldIn, blockpos, side);
+        LazyOptional<IItemHandler> capability = cache.getCapability();
+        TileEntity tileentity = cache.getResolvedTileEntity();
+        if (tileentity != null)
         {
-            TileEntity tileentity = worldIn.getTileEntity(blockpos);
-            if (tileentity != null)
-            {
-                return tileentity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, side)
-                    .map(capability -> ImmutablePair.<IItemHandler, Object>of(capability, tileentity));
-            }
+            return capability.map(handler -> ImmutablePair.<IItemHandler, Object>of(handler, tileentity));
         }
 
         return Optional.empty();
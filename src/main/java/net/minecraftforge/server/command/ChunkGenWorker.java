@@ -20,66 +20,106 @@
 package net.minecraftforge.server.command;
 
 import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import net.minecraft.command.CommandSource;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.INBT;
+import net.minecraft.nbt.ListNBT;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.RegistryKey;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.text.TextComponent;
 import net.minecraft.util.text.TranslationTextComponent;
-import net.minecraft.world.server.ServerWorld;
-import net.minecraft.world.DimensionType;
+import net.minecraft.world.World;
 import net.minecraft.world.chunk.ChunkStatus;
-import net.minecraft.world.chunk.IChunk;
+import net.minecraft.world.server.ServerChunkProvider;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraft.world.server.TicketType;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.util.Constants;
+import net.minecraftforge.common.WorldWorkerManager;
 import net.minecraftforge.common.WorldWorkerManager.IWorker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+/**
+ * Generates chunks in a spiral around a start position.
+ *
+ * Up to {@link #MAX_IN_FLIGHT} chunks are requested from the {@link ServerChunkProvider} at the same time, so the world gen
+ * threads stay busy while the server thread only checks on them. New chunks are not requested while too many chunks are
+ * waiting to be unloaded and saved. The progress is saved with the world, keyed by center and chunk count so several
+ * tasks in the same dimension keep their own progress, and the generation is resumed when the server starts again.
+ */
 public class ChunkGenWorker implements IWorker
 {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final TicketType<ChunkPos> TICKET = TicketType.create("forge:generate", Comparator.comparingLong(ChunkPos::asLong));
+    private static final int MAX_IN_FLIGHT = 64;
+    // Generating a chunk loads its neighbours as well, these all have to be saved before they are unloaded
+    private static final int MAX_BACKLOG = 8192;
+    // How far the baseline may rise per tick, so chunks loaded for players joining or moving around stop counting as backlog
+    private static final int BASELINE_RECOVERY = 16;
+    private static final int CHECKPOINT_INTERVAL = 256;
+
     private final CommandSource listener;
     protected final BlockPos start;
     protected final int total;
     private final ServerWorld dim;
-    private final Queue<BlockPos> queue;
+    private final int interval;
+    private final Spiral spiral;
+    private final ArrayDeque<Pending> inFlight = new ArrayDeque<>();
     private final int notificationFrequency;
+    private final int startIndex;
+    private final long startTime;
     private int lastNotification = 0;
     private long lastNotifcationTime = 0;
     private int genned = 0;
-    private Boolean keepingLoaded;
+    private int done;
+    private int lastCheckpoint;
+    private int baseline = Integer.MAX_VALUE;
 
     public ChunkGenWorker(CommandSource listener, BlockPos start, int total, ServerWorld dim, int interval)
+    {
+        this(listener, start, total, dim, interval, 0);
+    }
+
+    private ChunkGenWorker(CommandSource listener, BlockPos start, int total, ServerWorld dim, int interval, int startIndex)
     {
         this.listener = listener;
         this.start = start;
         this.total = total;
         this.dim  = dim;
-        this.queue = buildQueue();
+        this.interval = interval;
+        this.spiral = new Spiral(start.getX(), start.getZ());
+        for (int i = 0; i < startIndex; i++)
+            this.spiral.next();
+        this.startIndex = this.done = this.lastCheckpoint = startIndex;
         this.notificationFrequency = interval != -1 ? interval : Math.max(total / 20, 100); //Every 5% or every 100, whichever is more.
-        this.lastNotifcationTime = System.currentTimeMillis(); //We also notify at least once every 60 seconds, to show we haven't froze.
+        this.lastNotifcationTime = this.startTime = System.currentTimeMillis(); //We also notify at least once every 60 seconds, to show we haven't froze.
     }
 
-    protected Queue<BlockPos> buildQueue()
+    /**
+     * Restarts the generation tasks that were running when the server was last stopped.
+     */
+    public static void resume(MinecraftServer server)
     {
-        Queue<BlockPos> ret = new ArrayDeque<BlockPos>();
-        ret.add(start);
-
-        //This *should* spiral outwards, starting on right side, down, left, up, right, but hey we'll see!
-        int radius = 1;
-        while (ret.size() < total)
+        for (ServerWorld world : server.getWorlds())
         {
-            for (int q = -radius + 1; q <= radius && ret.size() < total; q++)
-                ret.add(start.add(radius, 0, q));
-
-            for (int q = radius - 1; q >= -radius && ret.size() < total; q--)
-                ret.add(start.add(q, 0, radius));
-
-            for (int q = radius - 1; q >= -radius && ret.size() < total; q--)
-                ret.add(start.add(-radius, 0, q));
-
-            for (int q = -radius + 1; q <= radius && ret.size() < total; q++)
-                ret.add(start.add(q, 0, -radius));
-
-            radius++;
+            Checkpoint checkpoint = world.getSavedData().get(Checkpoint::new, Checkpoint.ID);
+            if (checkpoint == null)
+                continue;
+            for (Task task : checkpoint.tasks.values())
+            {
+                LOGGER.info("Resuming chunk generation in {} around {}, {} at {}/{}", world.getDimensionKey().getLocation(), task.start.getX(), task.start.getZ(), task.index, task.total);
+                WorldWorkerManager.addWorker(new ChunkGenWorker(server.getCommandSource(), task.start, task.total, world, task.interval, task.index));
+            }
         }
-        return ret;
     }
 
     public TextComponent getStartMessage(CommandSource sender)
@@ -87,67 +127,257 @@ public class ChunkGenWorker implements IWorker
         return new TranslationTextComponent("commands.forge.gen.start", total, start.getX(), start.getZ(), dim);
     }
 
+    @Override
+    public WorldWorkerManager.Priority getPriority()
+    {
+        return WorldWorkerManager.Priority.LOW; // Pregeneration is never urgent, other workers in the same dimension get the larger share
+    }
+
+    @Override
+    public RegistryKey<World> getDimension()
+    {
+        return dim.getDimensionKey();
+    }
+
+    @Override
+    public String getName()
+    {
+        return "forge:generate";
+    }
+
     @Override
     public boolean hasWork()
     {
-        return queue.size() > 0;
+        return done < total;
     }
 
     @Override
     public boolean doWork()
     {
-        /* TODO: Check how many things are pending save, and slow down world gen if to many
-        AnvilChunkLoader loader = dim.getChunkProvider().chunkLoader instanceof AnvilChunkLoader ? (AnvilChunkLoader)world.getChunkProvider().chunkLoader : null;
-        if (loader != null && loader.getPendingSaveCount() > 100)
+        ServerChunkProvider provider = dim.getChunkProvider();
+        if (done == startIndex && inFlight.isEmpty())
+            saveCheckpoint(); // Make sure the task is resumed even if the server stops before the first checkpoint
+
+        for (Iterator<Pending> itr = inFlight.iterator(); itr.hasNext();)
         {
+            Pending pending = itr.next();
+            if (!pending.future.isDone())
+                continue;
+            provider.releaseTicket(TICKET, pending.pos, 0, pending.pos);
+            itr.remove();
+            done++;
+            if (pending.generated)
+                genned++; //There isn't a way to check if the chunk is actually created just if it was loaded
 
-            if (lastNotifcationTime < System.currentTimeMillis() - 10*1000)
+            if (++lastNotification >= notificationFrequency || lastNotifcationTime < System.currentTimeMillis() - 60*1000)
             {
-                listener.sendFeedback(new TranslationTextComponent("commands.forge.gen.progress", total - queue.size(), total), true);
+                sendProgress();
+                lastNotification = 0;
                 lastNotifcationTime = System.currentTimeMillis();
             }
+        }
+
+        if (done >= total)
+        {
+            listener.sendFeedback(new TranslationTextComponent("commands.forge.gen.complete", genned, total, dim.getDimensionKey().getLocation()), true);
+            Checkpoint checkpoint = dim.getSavedData().getOrCreate(Checkpoint::new, Checkpoint.ID);
+            if (checkpoint.tasks.remove(Task.key(start, total)) != null)
+                checkpoint.markDirty();
             return false;
         }
-        */
 
-        BlockPos next = queue.poll();
+        if (done - lastCheckpoint >= CHECKPOINT_INTERVAL)
+            saveCheckpoint();
 
-        if (next != null)
+        // Chunks that are no longer needed stay loaded until they are saved, pause while too many of them pile up.
+        // The baseline follows drops right away and rises slowly, so a lasting rise from other sources is absorbed
+        // while a backlog growing faster than the saves keep up with still pauses the generation.
+        int loaded = provider.getLoadedChunksCount();
+        baseline = baseline == Integer.MAX_VALUE ? loaded : Math.min(loaded, baseline + BASELINE_RECOVERY);
+        if (loaded - baseline > MAX_BACKLOG)
+            return false;
+
+        int requested = done + inFlight.size();
+        while (inFlight.size() < MAX_IN_FLIGHT && requested < total)
         {
-            // While we work we don't want to cause world load spam so pause unloading the world.
-            /* TODO: Readd if/when we introduce world unloading, or get Mojang to do it.
-            if (keepingLoaded == null)
-                keepingLoaded = DimensionManager.keepLoaded(dim, true);
-            */
+            ChunkPos pos = spiral.next();
+            boolean generated = !dim.chunkExists(pos.x, pos.z);
+            provider.registerTicket(TICKET, pos, 0, pos);
+            // With the ticket in place, the chunk is generated by the world gen threads and the future completes on the server thread
+            CompletableFuture<?> future = provider.func_217233_c(pos.x, pos.z, ChunkStatus.FULL, true);
+            inFlight.add(new Pending(pos, future, generated));
+            requested++;
+        }
+        return false; // The chunks complete in the background, check on them again next tick
+    }
 
-            if (++lastNotification >= notificationFrequency || lastNotifcationTime < System.currentTimeMillis() - 60*1000)
+    private void sendProgress()
+    {
+        double seconds = Math.max(1, (System.currentTimeMillis() - startTime) / 1000.0);
+        double rate = (done - startIndex) / seconds;
+        long eta = rate <= 0 ? -1 : (long)((total - done) / rate);
+        String etaText = eta < 0 ? "?" : String.format("%d:%02d:%02d", eta / 3600, (eta / 60) % 60, eta % 60);
+        listener.sendFeedback(new TranslationTextComponent("commands.forge.gen.progress_rate", done, total, String.format("%.1f", rate), etaText), true);
+    }
+
+    private void saveCheckpoint()
+    {
+        Checkpoint checkpoint = dim.getSavedData().getOrCreate(Checkpoint::new, Checkpoint.ID);
+        Task task = checkpoint.tasks.computeIfAbsent(Task.key(start, total), k -> new Task());
+        task.start = start;
+        task.total = total;
+        task.interval = interval;
+        // Chunks can finish out of order, only the ones before the oldest one in flight are known to be done
+        task.index = inFlight.isEmpty() ? done : inFlight.peek().index;
+        checkpoint.markDirty();
+        lastCheckpoint = done;
+    }
+
+    private class Pending
+    {
+        private final ChunkPos pos;
+        private final CompletableFuture<?> future;
+        private final boolean generated;
+        private final int index;
+
+        private Pending(ChunkPos pos, CompletableFuture<?> future, boolean generated)
+        {
+            this.pos = pos;
+            this.future = future;
+            this.generated = generated;
+            this.index = spiral.index - 1;
+        }
+    }
+
+    /**
+     * Produces the positions of the spiral one at a time, instead of building them all up front.
+     * This *should* spiral outwards, starting on right side, down, left, up, right, but hey we'll see!
+     */
+    private static class Spiral
+    {
+        private final int x;
+        private final int z;
+        private int index = 0;
+        private int radius = 0;
+        private int side = 3;
+        private int q = 0;
+
+        private Spiral(int x, int z)
+        {
+            this.x = x;
+            this.z = z;
+        }
+
+        private ChunkPos next()
+        {
+            index++;
+            if (radius == 0)
             {
-                listener.sendFeedback(new TranslationTextComponent("commands.forge.gen.progress", total - queue.size(), total), true);
-                lastNotification = 0;
-                lastNotifcationTime = System.currentTimeMillis();
+                radius = 1;
+                side = 0;
+                q = -radius + 1;
+                return new ChunkPos(x, z);
             }
 
-            int x = next.getX();
-            int z = next.getZ();
+            ChunkPos ret;
+            switch (side)
+            {
+                case 0:  ret = new ChunkPos(x + radius, z + q++); break;
+                case 1:  ret = new ChunkPos(x + q--, z + radius); break;
+                case 2:  ret = new ChunkPos(x - radius, z + q--); break;
+                default: ret = new ChunkPos(x + q++, z - radius); break;
+            }
 
-            if (!dim.chunkExists(x, z)) { //Chunk is unloaded
-                IChunk chunk = dim.getChunk(x, z, ChunkStatus.EMPTY, true);
-                if (!chunk.getStatus().isAtLeast(ChunkStatus.FULL)) {
-                    chunk = dim.getChunk(x, z, ChunkStatus.FULL);
-                    genned++; //There isn't a way to check if the chunk is actually created just if it was loaded
+            if ((side == 0 || side == 3) ? q > radius : q < -radius)
+            {
+                if (++side == 4)
+                {
+                    radius++;
+                    side = 0;
+                    q = -radius + 1;
+                }
+                else
+                {
+                    q = side == 3 ? -radius + 1 : radius - 1;
                 }
             }
+            return ret;
         }
+    }
 
-        if (queue.size() == 0)
+    /**
+     * The progress of all unfinished generation tasks in a dimension, keyed by {@link Task#key(BlockPos, int)}.
+     */
+    static class Checkpoint extends WorldSavedData
+    {
+        static final String ID = "forge_generate";
+
+        private final Map<String, Task> tasks = new LinkedHashMap<>();
+
+        Checkpoint()
         {
-            listener.sendFeedback(new TranslationTextComponent("commands.forge.gen.complete", genned, total, dim.getDimensionKey().getLocation()), true);
-            /* TODO: Readd if/when we introduce world unloading, or get Mojang to do it.
-            if (keepingLoaded != null && !keepingLoaded)
-                DimensionManager.keepLoaded(dim, false);
-            */
-            return false;
+            super(ID);
+        }
+
+        @Override
+        public void read(CompoundNBT nbt)
+        {
+            tasks.clear();
+            if (nbt.contains("total", Constants.NBT.TAG_INT))
+            {
+                // Checkpoints written before tasks were keyed hold a single task at the top level
+                Task task = Task.read(nbt);
+                if (task.total > 0)
+                    tasks.put(Task.key(task.start, task.total), task);
+            }
+            for (INBT entry : nbt.getList("tasks", Constants.NBT.TAG_COMPOUND))
+            {
+                Task task = Task.read((CompoundNBT)entry);
+                tasks.put(Task.key(task.start, task.total), task);
+            }
+        }
+
+        @Override
+        public CompoundNBT write(CompoundNBT nbt)
+        {
+            ListNBT list = new ListNBT();
+            for (Task task : tasks.values())
+                list.add(task.write(new CompoundNBT()));
+            nbt.put("tasks", list);
+            return nbt;
+        }
+    }
+
+    private static class Task
+    {
+        private BlockPos start = BlockPos.ZERO;
+        private int total;
+        private int interval;
+        private int index;
+
+        private static String key(BlockPos start, int total)
+        {
+            return start.getX() + "," + start.getZ() + "," + total;
+        }
+
+        private static Task read(CompoundNBT nbt)
+        {
+            Task task = new Task();
+            task.start = new BlockPos(nbt.getInt("x"), 0, nbt.getInt("z"));
+            task.total = nbt.getInt("total");
+            task.interval = nbt.getInt("interval");
+            task.index = nbt.getInt("index");
+            return task;
+        }
+
+        private CompoundNBT write(CompoundNBT nbt)
+        {
+            nbt.putInt("x", start.getX());
+            nbt.putInt("z", start.getZ());
+            nbt.putInt("total", total);
+            nbt.putInt("interval", interval);
+            nbt.putInt("index", index);
+            return nbt;
         }
-        return true;
     }
 }
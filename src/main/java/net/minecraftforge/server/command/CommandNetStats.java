@@ -0,0 +1,132 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import java.text.DecimalFormat;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.command.ISuggestionProvider;
+import net.minecraft.command.arguments.ResourceLocationArgument;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.text.TranslationTextComponent;
+import net.minecraftforge.fml.network.NetworkStatistics;
+import net.minecraftforge.fml.network.PacketDistributor;
+
+class CommandNetStats
+{
+    private static final DecimalFormat TIME_FORMAT = new DecimalFormat("#####0.00");
+
+    static ArgumentBuilder<CommandSource, ?> register()
+    {
+        return Commands.literal("netstats")
+            .requires(cs->cs.hasPermissionLevel(2)) //permission
+            .then(Commands.literal("start")
+                .executes(ctx -> {
+                    NetworkStatistics.setEnabled(true);
+                    ctx.getSource().sendFeedback(new TranslationTextComponent("commands.forge.netstats.enabled"), true);
+                    return 0;
+                })
+            )
+            .then(Commands.literal("stop")
+                .executes(ctx -> {
+                    NetworkStatistics.setEnabled(false);
+                    ctx.getSource().sendFeedback(new TranslationTextComponent("commands.forge.netstats.disabled"), true);
+                    return 0;
+                })
+            )
+            .then(Commands.literal("reset")
+                .executes(ctx -> {
+                    NetworkStatistics.reset();
+                    ctx.getSource().sendFeedback(new TranslationTextComponent("commands.forge.netstats.reset"), true);
+                    return 0;
+                })
+            )
+            .then(Commands.literal("channel")
+                .then(Commands.argument("channel", ResourceLocationArgument.resourceLocation())
+                    .suggests((ctx, builder) -> ISuggestionProvider.suggestIterable(NetworkStatistics.getChannels().stream().map(NetworkStatistics.ChannelStatistics::getName).collect(Collectors.toList()), builder))
+                    .executes(ctx -> sendChannel(ctx.getSource(), ResourceLocationArgument.getResourceLocation(ctx, "channel")))
+                )
+            )
+            .executes(ctx -> sendSummary(ctx.getSource()));
+    }
+
+    private static int sendSummary(CommandSource source)
+    {
+        if (!NetworkStatistics.isEnabled())
+            source.sendFeedback(new TranslationTextComponent("commands.forge.netstats.not_enabled"), false);
+
+        List<NetworkStatistics.ChannelStatistics> channels = NetworkStatistics.getChannels().stream()
+            .filter(c -> c.getEncodedCount() > 0 || c.getDecodedCount() > 0)
+            .sorted(Comparator.comparingLong((NetworkStatistics.ChannelStatistics c) -> c.getEncodedBytes() + c.getDecodedBytes()).reversed())
+            .collect(Collectors.toList());
+        if (channels.isEmpty())
+        {
+            source.sendFeedback(new TranslationTextComponent("commands.forge.tracking.no_data"), false);
+            return 0;
+        }
+
+        double seconds = Math.max(1, (System.currentTimeMillis() - NetworkStatistics.getStartTime()) / 1000.0);
+        channels.stream().limit(10).forEach(c -> source.sendFeedback(new TranslationTextComponent("commands.forge.netstats.channel",
+            c.getName(), c.getEncodedCount(), formatBytes(c.getEncodedBytes() / seconds), c.getDecodedCount(), formatBytes(c.getDecodedBytes() / seconds)), false));
+        return channels.size();
+    }
+
+    private static int sendChannel(CommandSource source, ResourceLocation name)
+    {
+        NetworkStatistics.ChannelStatistics channel = NetworkStatistics.getChannel(name);
+        if (channel == null || channel.getMessages().isEmpty())
+        {
+            source.sendFeedback(new TranslationTextComponent("commands.forge.tracking.no_data"), false);
+            return 0;
+        }
+
+        for (NetworkStatistics.MessageStatistics msg : channel.getMessages())
+        {
+            source.sendFeedback(new TranslationTextComponent("commands.forge.netstats.message", msg.getDiscriminator(),
+                msg.getEncodedCount(), formatBytes(msg.getEncodedBytes()), formatMicros(msg.getEncodeNanos(), msg.getEncodedCount()),
+                msg.getDecodedCount(), formatBytes(msg.getDecodedBytes()), formatMicros(msg.getDecodeNanos(), msg.getDecodedCount())), false);
+        }
+        for (Map.Entry<PacketDistributor<?>, Long> entry : channel.getSends().entrySet())
+        {
+            source.sendFeedback(new TranslationTextComponent("commands.forge.netstats.target", NetworkStatistics.getDistributorName(entry.getKey()), entry.getValue()), false);
+        }
+        return 1;
+    }
+
+    private static String formatBytes(double bytes)
+    {
+        if (bytes > 1024 * 1024)
+            return TIME_FORMAT.format(bytes / (1024 * 1024)) + "MiB";
+        if (bytes > 1024)
+            return TIME_FORMAT.format(bytes / 1024) + "KiB";
+        return TIME_FORMAT.format(bytes) + "B";
+    }
+
+    private static String formatMicros(long nanos, long count)
+    {
+        return TIME_FORMAT.format(count == 0 ? 0 : nanos / 1000.0 / count) + "\u03bcs";
+    }
+}
@@ -21,6 +21,7 @@ package net.minecraftforge.server.command;
 
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.builder.ArgumentBuilder;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -36,8 +37,11 @@ import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TranslationTextComponent;
+import net.minecraftforge.server.timings.ContinuousTimings;
 import net.minecraftforge.server.timings.ForgeTimings;
 import net.minecraftforge.server.timings.TimeTracker;
+import net.minecraftforge.server.timings.TimingHistogram;
+import net.minecraftforge.server.timings.TimingsExporter;
 
 class CommandTrack
 {
@@ -50,6 +54,7 @@ class CommandTrack
             .then(ResetTrackingCommand.register())
             .then(TrackResultsEntity.register())
             .then(TrackResultsTileEntity.register())
+            .then(ProfileCommand.register())
             .then(StartTrackingCommand.register());
     }
 
@@ -143,6 +148,59 @@ class CommandTrack
         }
     }
 
+    private static class ProfileCommand
+    {
+        static ArgumentBuilder<CommandSource, ?> register()
+        {
+            return Commands.literal("profile")
+                .requires(cs->cs.hasPermissionLevel(2)) //permission
+                .then(Commands.literal("te").executes(ctx -> execute(ctx.getSource(), TimeTracker.TILE_ENTITY_UPDATE)))
+                .then(Commands.literal("entity").executes(ctx -> execute(ctx.getSource(), TimeTracker.ENTITY_UPDATE)))
+                .then(Commands.literal("export")
+                    .executes(ctx -> {
+                        Path file = TimingsExporter.export();
+                        ctx.getSource().sendFeedback(new TranslationTextComponent("commands.forge.tracking.profile.exported", file.toString()), true);
+                        return 0;
+                    })
+                )
+                .then(Commands.literal("reset")
+                    .executes(ctx -> {
+                        TimeTracker.TILE_ENTITY_UPDATE.resetContinuous();
+                        TimeTracker.ENTITY_UPDATE.resetContinuous();
+                        ctx.getSource().sendFeedback(new TranslationTextComponent("commands.forge.tracking.profile.reset"), true);
+                        return 0;
+                    })
+                );
+        }
+
+        private static <T> int execute(CommandSource source, TimeTracker<T> tracker)
+        {
+            if (!tracker.isContinuousEnabled())
+            {
+                source.sendFeedback(new TranslationTextComponent("commands.forge.tracking.profile.disabled"), true);
+                return 0;
+            }
+            List<ContinuousTimings.TypeTimings> timings = tracker.getContinuousTimings().getTypeTimings();
+            if (timings.isEmpty())
+            {
+                source.sendFeedback(new TranslationTextComponent("commands.forge.tracking.no_data"), true);
+                return 0;
+            }
+            timings.stream().limit(10).forEach(t -> {
+                TimingHistogram h = t.getHistogram();
+                source.sendFeedback(new TranslationTextComponent("commands.forge.tracking.profile.entry", t.getType().getRegistryName(), h.getCount(),
+                    formatNanos(h.getAverage()), formatNanos(h.getPercentile(0.5)), formatNanos(h.getPercentile(0.99)), formatNanos(h.getMax())), true);
+            });
+            return 0;
+        }
+
+        private static String formatNanos(double nanos)
+        {
+            double micros = nanos / 1000;
+            return micros > 1000 ? TIME_FORMAT.format(micros / 1000) + "ms" : TIME_FORMAT.format(micros) + "\u03bcs";
+        }
+    }
+
     private static class TrackResultsEntity
     {
         static ArgumentBuilder<CommandSource, ?> register()
@@ -0,0 +1,65 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.command;
+
+import java.text.DecimalFormat;
+import java.util.List;
+
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.StringTextComponent;
+import net.minecraft.util.text.TranslationTextComponent;
+import net.minecraftforge.common.WorldWorkerManager;
+
+class CommandWorkers
+{
+    private static final DecimalFormat TIME_FORMAT = new DecimalFormat("#####0.00");
+
+    static ArgumentBuilder<CommandSource, ?> register()
+    {
+        return Commands.literal("workers")
+            .requires(cs->cs.hasPermissionLevel(2)) //permission
+            .executes(ctx -> {
+                CommandSource source = ctx.getSource();
+                List<WorldWorkerManager.WorkerInfo> workers = WorldWorkerManager.getWorkers();
+                source.sendFeedback(new TranslationTextComponent("commands.forge.workers.summary", WorldWorkerManager.getQueueDepth(),
+                    millis(WorldWorkerManager.getLastTimeSpent()), millis(WorldWorkerManager.getLastBudget()), seconds(WorldWorkerManager.getTotalTimeSpent())), false);
+                for (WorldWorkerManager.WorkerInfo worker : workers)
+                {
+                    ITextComponent dimension = worker.getDimension() == null ? new TranslationTextComponent("commands.forge.workers.global") : new StringTextComponent(worker.getDimension().getLocation().toString());
+                    source.sendFeedback(new TranslationTextComponent("commands.forge.workers.worker", worker.getName(), dimension, worker.getPriority(),
+                        millis(worker.getLastTickTime()), seconds(worker.getTotalTime())), false);
+                }
+                return workers.size();
+            });
+    }
+
+    private static String millis(long nanos)
+    {
+        return TIME_FORMAT.format(nanos / 1_000_000.0);
+    }
+
+    private static String seconds(long nanos)
+    {
+        return TIME_FORMAT.format(nanos / 1_000_000_000.0);
+    }
+}
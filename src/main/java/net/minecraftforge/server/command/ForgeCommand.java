@@ -31,8 +31,10 @@ public class ForgeCommand
             LiteralArgumentBuilder.<CommandSource>literal("forge")
             .then(CommandTps.register())
             .then(CommandTrack.register())
+            .then(CommandNetStats.register())
             .then(CommandEntity.register())
             .then(CommandGenerate.register())
+            .then(CommandWorkers.register())
             .then(CommandDimensions.register())
             .then(CommandSetDimension.register())
             .then(CommandModList.register())
@@ -0,0 +1,265 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.timings;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraftforge.registries.IForgeRegistryEntry;
+
+/**
+ * Always-on aggregation of timings, backing the continuous mode of a {@link TimeTracker}.
+ *
+ * Only a configurable fraction of objects is sampled. The choice is made from the object's identity
+ * hash, so the same objects are sampled for their whole lifetime. Timings are aggregated per type into a
+ * {@link TimingHistogram}, and per chunk into count, total and max. Nothing is allocated once a type or
+ * chunk has been seen, and at most {@link #MAX_TRACKED_CHUNKS} chunks are tracked per dimension.
+ *
+ * Recording is synchronized, so worlds ticking on different threads can share one instance. Objects belonging to client worlds are ignored.
+ */
+public class ContinuousTimings<T>
+{
+    public static final int MAX_TRACKED_CHUNKS = 1 << 14;
+    private static final int SAMPLE_SCALE = 1 << 16;
+
+    private final Function<T, ? extends IForgeRegistryEntry<?>> type;
+    private final Function<T, World> world;
+    private final ToLongFunction<T> chunk;
+
+    private volatile int sampleThreshold = SAMPLE_SCALE;
+    private final Map<IForgeRegistryEntry<?>, TimingHistogram> types = new IdentityHashMap<>();
+    private final Map<RegistryKey<World>, Long2ObjectMap<long[]>> chunks = new IdentityHashMap<>();
+    private long startTime = System.currentTimeMillis();
+
+    public ContinuousTimings(Function<T, ? extends IForgeRegistryEntry<?>> type, Function<T, World> world, ToLongFunction<T> chunk)
+    {
+        this.type = type;
+        this.world = world;
+        this.chunk = chunk;
+    }
+
+    /**
+     * @param rate The fraction of objects to sample, between 0 and 1
+     */
+    public void setSampleRate(double rate)
+    {
+        this.sampleThreshold = (int)Math.round(Math.max(0, Math.min(1, rate)) * SAMPLE_SCALE);
+    }
+
+    /**
+     * @return True if the given object is part of the sampled fraction
+     */
+    public boolean shouldSample(T obj)
+    {
+        if (sampleThreshold >= SAMPLE_SCALE)
+            return true;
+        int hash = System.identityHashCode(obj) * 0x9E3779B9; // Spread out the identity hash, they are not well distributed in the low bits
+        return (hash >>> 16) < sampleThreshold;
+    }
+
+    void record(T obj, long nanos)
+    {
+        World world = this.world.apply(obj);
+        if (world == null || world.isRemote)
+            return;
+
+        IForgeRegistryEntry<?> key = type.apply(obj);
+        long pos = chunk.applyAsLong(obj);
+        synchronized (this)
+        {
+            record(key, world.getDimensionKey(), pos, nanos);
+        }
+    }
+
+    private void record(IForgeRegistryEntry<?> key, RegistryKey<World> dimension, long pos, long nanos)
+    {
+        TimingHistogram histogram = types.get(key);
+        if (histogram == null)
+        {
+            histogram = new TimingHistogram();
+            types.put(key, histogram);
+        }
+        histogram.record(nanos);
+
+        Long2ObjectMap<long[]> dimChunks = chunks.get(dimension);
+        if (dimChunks == null)
+        {
+            dimChunks = new Long2ObjectOpenHashMap<>();
+            chunks.put(dimension, dimChunks);
+        }
+        long[] data = dimChunks.get(pos);
+        if (data == null)
+        {
+            if (dimChunks.size() >= MAX_TRACKED_CHUNKS)
+                return;
+            data = new long[3];
+            dimChunks.put(pos, data);
+        }
+        data[0]++;
+        data[1] += nanos;
+        if (nanos > data[2])
+            data[2] = nanos;
+    }
+
+    public synchronized void reset()
+    {
+        types.clear();
+        chunks.clear();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return The time in milliseconds at which collection started, or was last reset
+     */
+    public synchronized long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * @return A snapshot of the per type timings, sorted by total time spent, highest first
+     */
+    public synchronized List<TypeTimings> getTypeTimings()
+    {
+        List<TypeTimings> ret = new ArrayList<>(types.size());
+        types.forEach((k, v) -> ret.add(new TypeTimings(k, v.copy())));
+        ret.sort(Comparator.comparingLong((TypeTimings t) -> t.getHistogram().getTotal()).reversed());
+        return ret;
+    }
+
+    /**
+     * @return A snapshot of the per chunk timings, sorted by total time spent, highest first
+     */
+    public synchronized List<ChunkTimings> getChunkTimings()
+    {
+        List<ChunkTimings> ret = new ArrayList<>();
+        chunks.forEach((dim, map) -> map.long2ObjectEntrySet().forEach(e -> ret.add(new ChunkTimings(dim, new ChunkPos(e.getLongKey()), e.getValue()[0], e.getValue()[1], e.getValue()[2]))));
+        ret.sort(Comparator.comparingLong(ChunkTimings::getTotal).reversed());
+        return ret;
+    }
+
+    /**
+     * Writes the snapshots as tab separated lines, see {@link #write(Writer, List, List)}
+     */
+    public void write(Writer writer) throws IOException
+    {
+        write(writer, getTypeTimings(), getChunkTimings());
+    }
+
+    /**
+     * Writes the given snapshots as tab separated lines, all times are in nanoseconds:
+     * <pre>
+     * type  &lt;registry name&gt;  &lt;count&gt;  &lt;total&gt;  &lt;p50&gt;  &lt;p99&gt;  &lt;max&gt;
+     * chunk &lt;dimension&gt;  &lt;x&gt;  &lt;z&gt;  &lt;count&gt;  &lt;total&gt;  &lt;max&gt;
+     * </pre>
+     * The snapshots can be taken on the server thread and written from any other thread.
+     */
+    public static void write(Writer writer, List<TypeTimings> types, List<ChunkTimings> chunks) throws IOException
+    {
+        for (TypeTimings t : types)
+        {
+            TimingHistogram h = t.getHistogram();
+            writer.write("type\t" + t.getType().getRegistryName() + '\t' + h.getCount() + '\t' + h.getTotal() + '\t' +
+                h.getPercentile(0.5) + '\t' + h.getPercentile(0.99) + '\t' + h.getMax() + '\n');
+        }
+        for (ChunkTimings c : chunks)
+        {
+            writer.write("chunk\t" + c.getDimension().getLocation() + '\t' + c.getPos().x + '\t' + c.getPos().z + '\t' +
+                c.getCount() + '\t' + c.getTotal() + '\t' + c.getMax() + '\n');
+        }
+    }
+
+    public static class TypeTimings
+    {
+        private final IForgeRegistryEntry<?> type;
+        private final TimingHistogram histogram;
+
+        TypeTimings(IForgeRegistryEntry<?> type, TimingHistogram histogram)
+        {
+            this.type = type;
+            this.histogram = histogram;
+        }
+
+        public IForgeRegistryEntry<?> getType()
+        {
+            return type;
+        }
+
+        public TimingHistogram getHistogram()
+        {
+            return histogram;
+        }
+    }
+
+    public static class ChunkTimings
+    {
+        private final RegistryKey<World> dimension;
+        private final ChunkPos pos;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        ChunkTimings(RegistryKey<World> dimension, ChunkPos pos, long count, long total, long max)
+        {
+            this.dimension = dimension;
+            this.pos = pos;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public RegistryKey<World> getDimension()
+        {
+            return dimension;
+        }
+
+        public ChunkPos getPos()
+        {
+            return pos;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public long getTotal()
+        {
+            return total;
+        }
+
+        public long getMax()
+        {
+            return max;
+        }
+    }
+}
@@ -23,16 +23,26 @@ import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.MapMaker;
 
 import net.minecraft.entity.Entity;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraftforge.registries.IForgeRegistryEntry;
 
 /**
  * A class to assist in the collection of data to measure the update times of ticking objects {currently Tile Entities and Entities}
  *
+ * The object currently being timed is kept per thread, so worlds ticking on different threads can be tracked at the same time.
+ *
  * @param <T>
  */
 public class TimeTracker<T>
@@ -41,18 +51,40 @@ public class TimeTracker<T>
     /**
      * A tracker for timing tile entity update
      */
-    public static final TimeTracker<TileEntity> TILE_ENTITY_UPDATE = new TimeTracker<>();
+    public static final TimeTracker<TileEntity> TILE_ENTITY_UPDATE = new TimeTracker<>(TileEntity::getType, TileEntity::getWorld,
+        te -> ChunkPos.asLong(te.getPos().getX() >> 4, te.getPos().getZ() >> 4));
     /**
      * A tracker for timing entity updates
      */
-    public static final TimeTracker<Entity> ENTITY_UPDATE = new TimeTracker<>();
+    public static final TimeTracker<Entity> ENTITY_UPDATE = new TimeTracker<>(Entity::getType, e -> e.world,
+        e -> ChunkPos.asLong(MathHelper.floor(e.getPosX()) >> 4, MathHelper.floor(e.getPosZ()) >> 4));
 
-    private boolean enabled;
+    private volatile boolean enabled;
     private int trackingDuration;
     private Map<T, int[]> timings = new MapMaker().weakKeys().makeMap();
-    private WeakReference<T> currentlyTracking;
-    private long trackTime;
-    private long timing;
+    private final ThreadLocal<InFlight<T>> inFlight = ThreadLocal.withInitial(InFlight::new);
+    private volatile long trackTime;
+
+    @Nullable
+    private final ContinuousTimings<T> continuousTimings;
+    private volatile boolean continuousEnabled;
+
+    public TimeTracker()
+    {
+        this.continuousTimings = null;
+    }
+
+    /**
+     * Creates a tracker that also supports the always-on continuous mode.
+     *
+     * @param type Returns the registry entry used to aggregate timings of the object by type
+     * @param world Returns the world the object is in, objects in client worlds are not recorded
+     * @param chunk Returns the packed {@link ChunkPos} the object is in
+     */
+    public TimeTracker(Function<T, ? extends IForgeRegistryEntry<?>> type, Function<T, World> world, ToLongFunction<T> chunk)
+    {
+        this.continuousTimings = new ContinuousTimings<>(type, world, chunk);
+    }
 
     /**
      * Returns the timings data recorded by the tracker
@@ -65,7 +97,11 @@ public class TimeTracker<T>
 
         for (Map.Entry<T, int[]> entry : timings.entrySet())
         {
-            builder.add(new ForgeTimings<>(entry.getKey(), Arrays.copyOfRange(entry.getValue(), 0, 99)));
+            int[] data = entry.getValue();
+            synchronized (data)
+            {
+                builder.add(new ForgeTimings<>(entry.getKey(), Arrays.copyOfRange(data, 0, 99)));
+            }
         }
         return builder.build();
     }
@@ -87,9 +123,17 @@ public class TimeTracker<T>
      */
     public void trackEnd(T tracking)
     {
+        if (!continuousEnabled && !enabled)
+            return;
+        InFlight<T> current = inFlight.get();
+        if (current.continuousTracking != null && current.continuousTracking == tracking)
+        {
+            continuousTimings.record(tracking, System.nanoTime() - current.continuousTiming);
+            current.continuousTracking = null;
+        }
         if (!enabled)
             return;
-        this.trackEnd(tracking, System.nanoTime());
+        this.trackEnd(current, tracking, System.nanoTime());
     }
 
     /**
@@ -110,24 +154,75 @@ public class TimeTracker<T>
      */
     public void trackStart(T toTrack)
     {
+        if (!continuousEnabled && !enabled)
+            return;
+        InFlight<T> current = inFlight.get();
+        if (continuousEnabled && continuousTimings.shouldSample(toTrack))
+        {
+            current.continuousTracking = toTrack;
+            current.continuousTiming = System.nanoTime();
+        }
         if (!enabled)
             return;
-        this.trackStart(toTrack, System.nanoTime());
+        this.trackStart(current, toTrack, System.nanoTime());
+    }
+
+    /**
+     * Enables or disables continuous tracking. Unlike {@link #enable(int)} this mode has no time limit,
+     * and aggregates timings into histograms instead of keeping the last 100 samples.
+     * Data already collected is kept when disabling, see {@link #resetContinuous()}.
+     *
+     * @param enabled True to enable continuous tracking
+     * @param sampleRate The fraction of objects to record, between 0 and 1
+     */
+    public void setContinuous(boolean enabled, double sampleRate)
+    {
+        if (continuousTimings == null)
+            throw new IllegalStateException("This tracker does not support continuous tracking");
+        continuousTimings.setSampleRate(sampleRate);
+        continuousEnabled = enabled;
+    }
+
+    public boolean isContinuousEnabled()
+    {
+        return continuousEnabled;
+    }
+
+    /**
+     * @return The continuous timings of this tracker, or null if this tracker does not support continuous tracking
+     */
+    @Nullable
+    public ContinuousTimings<T> getContinuousTimings()
+    {
+        return continuousTimings;
+    }
+
+    /**
+     * Clears all data collected by continuous tracking
+     */
+    public void resetContinuous()
+    {
+        if (continuousTimings != null)
+            continuousTimings.reset();
     }
 
-    private void trackEnd(T object, long nanoTime)
+    private void trackEnd(InFlight<T> current, T object, long nanoTime)
     {
-        if (currentlyTracking == null || currentlyTracking.get() != object)
+        if (current.currentlyTracking == null || current.currentlyTracking.get() != object)
         {
-            currentlyTracking = null;
+            current.currentlyTracking = null;
             return;
         }
+        current.currentlyTracking = null;
         int[] timings = this.timings.computeIfAbsent(object, k -> new int[101]);
-        int idx = timings[100] = (timings[100] + 1) % 100;
-        timings[idx] = (int) (nanoTime - timing);
+        synchronized (timings)
+        {
+            int idx = timings[100] = (timings[100] + 1) % 100;
+            timings[idx] = (int) (nanoTime - current.timing);
+        }
     }
 
-    private void trackStart(T toTrack, long nanoTime)
+    private void trackStart(InFlight<T> current, T toTrack, long nanoTime)
     {
         if (trackTime == 0)
         {
@@ -139,7 +234,18 @@ public class TimeTracker<T>
             trackTime = 0;
         }
 
-        currentlyTracking = new WeakReference<>(toTrack);
-        timing = nanoTime;
+        current.currentlyTracking = new WeakReference<>(toTrack);
+        current.timing = nanoTime;
+    }
+
+    /**
+     * The object being timed on one thread, for both the timed and the continuous mode
+     */
+    private static class InFlight<T>
+    {
+        private WeakReference<T> currentlyTracking;
+        private long timing;
+        private T continuousTracking;
+        private long continuousTiming;
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.timings;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size, log-linear histogram of nanosecond timings.
+ *
+ * Every power of two is split into 8 linear buckets, so any recorded value is
+ * within 12.5% of the bucket it lands in. Recording never allocates.
+ */
+public class TimingHistogram
+{
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = ((63 - SUB_BITS + 1) << SUB_BITS);
+
+    private final long[] counts;
+    private long count;
+    private long total;
+    private long max;
+
+    public TimingHistogram()
+    {
+        this.counts = new long[BUCKETS];
+    }
+
+    private TimingHistogram(TimingHistogram other)
+    {
+        this.counts = other.counts.clone();
+        this.count = other.count;
+        this.total = other.total;
+        this.max = other.max;
+    }
+
+    /**
+     * Records a single timing
+     *
+     * @param nanos The time taken, in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+            nanos = 0;
+        counts[bucket(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max)
+            max = nanos;
+    }
+
+    /**
+     * @param percentile The percentile to look up, between 0 and 1
+     * @return An approximation of the timing at that percentile, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile)
+    {
+        if (count == 0)
+            return 0;
+        long target = Math.max(1, (long)Math.ceil(percentile * count));
+        long seen = 0;
+        for (int x = 0; x < counts.length; x++)
+        {
+            seen += counts[x];
+            if (seen >= target)
+                return Math.min(max, lowerBound(x));
+        }
+        return max;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getTotal()
+    {
+        return total;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public double getAverage()
+    {
+        return count == 0 ? 0 : (double)total / count;
+    }
+
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * @return A copy of this histogram that can safely be read while this one keeps recording
+     */
+    public TimingHistogram copy()
+    {
+        return new TimingHistogram(this);
+    }
+
+    private static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int)value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        return ((msb - SUB_BITS + 1) << SUB_BITS) | (int)((value >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    private static long lowerBound(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int msb = (bucket >> SUB_BITS) + SUB_BITS - 1;
+        return ((long)(SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1)))) << (msb - SUB_BITS);
+    }
+}
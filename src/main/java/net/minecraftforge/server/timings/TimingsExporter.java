@@ -0,0 +1,156 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.server.timings;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraftforge.common.ForgeConfig;
+import net.minecraftforge.fml.loading.FMLPaths;
+
+/**
+ * Applies the continuous tracking settings from the server config to the {@link TimeTracker}s,
+ * and periodically writes their data to flat files in the "timings" folder of the game directory.
+ *
+ * Snapshots are taken on the server thread, the files are written one after another on a single background thread.
+ */
+public class TimingsExporter
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Path EXPORT_DIR = FMLPaths.GAMEDIR.get().resolve("timings");
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Forge Timings Export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static int ticks = 0;
+
+    /**
+     * Called by Forge at the end of every server tick.
+     */
+    public static void tick()
+    {
+        boolean enabled = ForgeConfig.SERVER.continuousTickProfiling.get();
+        double sampleRate = ForgeConfig.SERVER.continuousTickProfilingSampleRate.get();
+        TimeTracker.TILE_ENTITY_UPDATE.setContinuous(enabled, sampleRate);
+        TimeTracker.ENTITY_UPDATE.setContinuous(enabled, sampleRate);
+
+        int interval = ForgeConfig.SERVER.continuousTickProfilingExportInterval.get() * 60 * 20;
+        if (!enabled || interval <= 0)
+        {
+            ticks = 0;
+            return;
+        }
+        if (++ticks >= interval)
+        {
+            ticks = 0;
+            export();
+        }
+    }
+
+    /**
+     * Snapshots the continuous timings of all trackers and writes them to a new file.
+     *
+     * @return The file the timings will be written to
+     */
+    public static Path export()
+    {
+        String stamp = new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date());
+        Path file = EXPORT_DIR.resolve("timings-" + stamp + ".tsv");
+        WRITER.execute(new ExportTask(file,
+            snapshot(TimeTracker.TILE_ENTITY_UPDATE),
+            snapshot(TimeTracker.ENTITY_UPDATE)
+        ));
+        return file;
+    }
+
+    private static Snapshot snapshot(TimeTracker<?> tracker)
+    {
+        ContinuousTimings<?> timings = tracker.getContinuousTimings();
+        return timings == null ? null : new Snapshot(timings.getStartTime(), timings.getTypeTimings(), timings.getChunkTimings());
+    }
+
+    private static class Snapshot
+    {
+        private final long startTime;
+        private final List<ContinuousTimings.TypeTimings> types;
+        private final List<ContinuousTimings.ChunkTimings> chunks;
+
+        private Snapshot(long startTime, List<ContinuousTimings.TypeTimings> types, List<ContinuousTimings.ChunkTimings> chunks)
+        {
+            this.startTime = startTime;
+            this.types = types;
+            this.chunks = chunks;
+        }
+    }
+
+    private static class ExportTask implements Runnable
+    {
+        private final Path file;
+        private final Snapshot tileEntities;
+        private final Snapshot entities;
+
+        private ExportTask(Path file, Snapshot tileEntities, Snapshot entities)
+        {
+            this.file = file;
+            this.tileEntities = tileEntities;
+            this.entities = entities;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                Files.createDirectories(file.getParent());
+                try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+                {
+                    write(writer, "tile_entity", tileEntities);
+                    write(writer, "entity", entities);
+                }
+            }
+            catch (IOException e)
+            {
+                LOGGER.error("Failed to export timings to {}", file, e);
+            }
+        }
+
+        private static void write(Writer writer, String name, Snapshot snapshot) throws IOException
+        {
+            if (snapshot == null)
+                return;
+            writer.write("# " + name + " since " + new Date(snapshot.startTime) + '\n');
+            ContinuousTimings.write(writer, snapshot.types, snapshot.chunks);
+        }
+    }
+}
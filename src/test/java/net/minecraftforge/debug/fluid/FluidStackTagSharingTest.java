@@ -0,0 +1,109 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.debug.fluid;
+
+import net.minecraft.fluid.Fluids;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraftforge.fluids.FluidKey;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * Checks that FluidStack copies and FluidKeys sharing a tag never see changes made through another reference to it.
+ * Needs the fluid registry, so it runs as a mod instead of a unit test.
+ */
+@Mod("fluid_stack_tag_sharing_test")
+public class FluidStackTagSharingTest
+{
+    public FluidStackTagSharingTest()
+    {
+        testCopyIsolatedFromHandedOutTag();
+        testCopiesShareUntilModified();
+        testCopyIsolatedFromWrittenNBT();
+        testKeyIsolatedFromSetTag();
+        testKeyIsolatedFromStackChanges();
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if (!condition)
+            throw new IllegalStateException(message);
+    }
+
+    private static CompoundNBT tag(int value)
+    {
+        CompoundNBT tag = new CompoundNBT();
+        tag.putInt("value", value);
+        return tag;
+    }
+
+    private void testCopyIsolatedFromHandedOutTag()
+    {
+        FluidStack stack = new FluidStack(Fluids.WATER, 1000, tag(1));
+        CompoundNBT handedOut = stack.getOrCreateTag();
+        FluidStack copy = stack.copy();
+        handedOut.putInt("value", 2);
+        check(stack.getTag().getInt("value") == 2, "Change through the handed out tag did not reach the stack");
+        check(copy.getTag().getInt("value") == 1, "Change through the handed out tag reached the copy");
+    }
+
+    private void testCopiesShareUntilModified()
+    {
+        FluidStack stack = new FluidStack(Fluids.WATER, 1000, tag(1));
+        FluidStack copy = stack.copy();
+        copy.getTag().putInt("value", 2);
+        check(stack.getTag().getInt("value") == 1, "Change to the copy reached the original");
+        check(copy.getTag().getInt("value") == 2, "Change to the copy was lost");
+    }
+
+    private void testCopyIsolatedFromWrittenNBT()
+    {
+        FluidStack stack = new FluidStack(Fluids.WATER, 1000, tag(1));
+        CompoundNBT written = stack.writeToNBT(new CompoundNBT());
+        FluidStack copy = stack.copy();
+        written.getCompound("Tag").putInt("value", 2);
+        check(stack.getTag().getInt("value") == 1, "Change to the written NBT reached the stack");
+        check(copy.getTag().getInt("value") == 1, "Change to the written NBT reached the copy");
+    }
+
+    private void testKeyIsolatedFromSetTag()
+    {
+        CompoundNBT tag = tag(1);
+        FluidStack stack = new FluidStack(Fluids.WATER, 1000);
+        stack.setTag(tag);
+        FluidKey key = FluidKey.of(stack);
+        int hash = key.hashCode();
+        tag.putInt("value", 2);
+        check(key.hashCode() == hash, "Change to the given tag changed the key hash");
+        check(key.toStack(1).getTag().getInt("value") == 1, "Change to the given tag reached the key");
+        check(key == FluidKey.of(new FluidStack(Fluids.WATER, 1, tag(1))), "Equal stacks did not give the same key");
+    }
+
+    private void testKeyIsolatedFromStackChanges()
+    {
+        FluidStack stack = new FluidStack(Fluids.WATER, 1000, tag(1));
+        FluidKey key = FluidKey.of(stack);
+        stack.getTag().putInt("value", 2);
+        key.toStack(500).getTag().putInt("value", 3);
+        check(key.toStack(1).getTag().getInt("value") == 1, "Change to a stack reached the key");
+        check(key.matches(new FluidStack(Fluids.WATER, 1, tag(1))), "Key does not match its own fluid and tag");
+        check(!key.matches(stack), "Key matches a stack that was changed");
+    }
+}
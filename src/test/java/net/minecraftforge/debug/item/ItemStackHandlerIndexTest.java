@@ -0,0 +1,190 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.debug.item;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.items.IVersionedItemHandler;
+import net.minecraftforge.items.ItemStackHandler;
+
+/**
+ * Checks that the slot index of {@link ItemStackHandler} stays correct when stacks are changed in place,
+ * and that it agrees with the unindexed loops. Needs the item registry, so it runs as a mod instead of a unit test.
+ */
+@Mod("item_stack_handler_index_test")
+public class ItemStackHandlerIndexTest
+{
+    public ItemStackHandlerIndexTest()
+    {
+        testShrinkInPlaceClearsFull();
+        testShrinkToZeroInPlaceMakesSlotEmpty();
+        testEmptiedInPlaceIsEmpty();
+        testGrowInPlaceIsSeen();
+        testCallerKeepsInsertedStack();
+        testStateDependentLimitIsRespected();
+        testFullAtMaxStackSize();
+        testChangeInPlaceChangesVersion();
+        testStateDependentLimitIsUntracked();
+    }
+
+    private static void check(boolean condition, String message)
+    {
+        if (!condition)
+            throw new IllegalStateException(message);
+    }
+
+    private static ItemStackHandler full(int slots)
+    {
+        ItemStackHandler handler = new ItemStackHandler(slots);
+        for (int slot = 0; slot < slots; slot++)
+            handler.setStackInSlot(slot, new ItemStack(Items.STONE, 64));
+        return handler;
+    }
+
+    private void testShrinkInPlaceClearsFull()
+    {
+        ItemStackHandler handler = full(3);
+        check(handler.isFull(), "Filled handler is not full");
+        check(handler.findFirstNonFullSlot(0, 3) == -1, "Filled handler has a non full slot");
+
+        // Like a container moving part of a slot out, the stack is changed without telling the handler
+        handler.getStackInSlot(1).shrink(10);
+
+        check(!handler.isFull(), "Shrinking a stack in place did not clear the full state");
+        check(handler.findFirstNonFullSlot(0, 3) == 1, "Shrunk slot is not the first non full slot");
+        check(handler.insertItemStacked(new ItemStack(Items.STONE, 10), false).isEmpty(), "Could not refill the shrunk slot");
+        check(handler.getStackInSlot(1).getCount() == 64, "Refilled slot has the wrong count");
+        check(handler.isFull(), "Refilled handler is not full");
+    }
+
+    private void testShrinkToZeroInPlaceMakesSlotEmpty()
+    {
+        ItemStackHandler handler = full(3);
+        handler.setStackInSlot(2, new ItemStack(Items.DIRT, 64));
+
+        handler.getStackInSlot(2).shrink(64);
+
+        check(!handler.isFull(), "Emptied slot still counts as full");
+        check(handler.findFirstNonFullSlot(0, 3) == 2, "Emptied slot is not the first non full slot");
+        check(handler.insertItem(0, 3, new ItemStack(Items.GRAVEL, 5), false).isEmpty(), "Could not insert into the emptied slot");
+        check(handler.getStackInSlot(2).getItem() == Items.GRAVEL && handler.getStackInSlot(2).getCount() == 5, "Emptied slot holds the wrong stack");
+    }
+
+    private void testEmptiedInPlaceIsEmpty()
+    {
+        ItemStackHandler handler = full(2);
+        check(!handler.isEmpty(), "Filled handler is empty");
+        for (int slot = 0; slot < handler.getSlots(); slot++)
+            handler.getStackInSlot(slot).setCount(0);
+        check(handler.isEmpty(), "Handler emptied in place is not empty");
+        check(handler.extractItem(stack -> true, 64, false).isEmpty(), "Extracted from a handler emptied in place");
+    }
+
+    private void testGrowInPlaceIsSeen()
+    {
+        ItemStackHandler handler = new ItemStackHandler(2);
+        handler.setStackInSlot(0, new ItemStack(Items.STONE, 1));
+        handler.setStackInSlot(1, new ItemStack(Items.STONE, 64));
+        check(!handler.isFull(), "Handler with room is full");
+
+        handler.getStackInSlot(0).grow(63);
+
+        check(handler.isFull(), "Growing a stack in place was not seen");
+        check(handler.extractItem(stack -> stack.getItem() == Items.STONE, 64, false).getCount() == 64, "First extraction is short");
+        check(handler.extractItem(stack -> stack.getItem() == Items.STONE, 64, false).getCount() == 64, "Second extraction is short");
+        check(handler.isEmpty(), "Handler is not empty after extracting everything");
+    }
+
+    private void testCallerKeepsInsertedStack()
+    {
+        ItemStackHandler handler = new ItemStackHandler(2);
+        ItemStack inserted = new ItemStack(Items.STONE, 10);
+        check(handler.insertItem(0, inserted, false).isEmpty(), "Could not insert into an empty handler");
+
+        inserted.setCount(64);
+
+        check(handler.findFirstNonFullSlot(0, 2) == 1, "Change to the inserted stack was not seen");
+    }
+
+    private void testStateDependentLimitIsRespected()
+    {
+        LimitedHandler handler = new LimitedHandler(2);
+        handler.setStackInSlot(0, new ItemStack(Items.STONE, 16));
+        handler.setStackInSlot(1, new ItemStack(Items.STONE, 16));
+        check(handler.isFull(), "Handler at its limit is not full");
+
+        // The limit depends on state the handler does not track, no invalidateIndex() call is needed
+        handler.limit = 32;
+
+        check(!handler.isFull(), "Raised limit was not seen");
+        check(handler.insertItemStacked(new ItemStack(Items.STONE, 32), false).isEmpty(), "Could not fill up to the raised limit");
+        check(handler.isFull(), "Handler at its raised limit is not full");
+    }
+
+    private void testFullAtMaxStackSize()
+    {
+        ItemStackHandler indexed = new ItemStackHandler(1);
+        indexed.setStackInSlot(0, new ItemStack(Items.ENDER_PEARL, 16));
+        LimitedHandler unindexed = new LimitedHandler(1);
+        unindexed.limit = 64;
+        unindexed.setStackInSlot(0, new ItemStack(Items.ENDER_PEARL, 16));
+        check(indexed.isFull(), "16 ender pearls are not full with the index");
+        check(unindexed.isFull(), "16 ender pearls are not full without the index");
+    }
+
+    private void testChangeInPlaceChangesVersion()
+    {
+        ItemStackHandler handler = full(2);
+        long version = handler.getChangeVersion();
+        check(version == handler.getChangeVersion(), "Version changed without a change");
+
+        handler.getStackInSlot(0).shrink(64);
+
+        check(version != handler.getChangeVersion(), "Change in place did not change the version");
+    }
+
+    private void testStateDependentLimitIsUntracked()
+    {
+        check(new LimitedHandler(1).getChangeVersion() == IVersionedItemHandler.UNTRACKED, "Handler with an overridden limit claims to track changes");
+    }
+
+    private static class LimitedHandler extends ItemStackHandler
+    {
+        private int limit = 16;
+
+        private LimitedHandler(int size)
+        {
+            super(size);
+        }
+
+        @Override
+        public int getSlotLimit(int slot)
+        {
+            return limit;
+        }
+
+        @Override
+        public boolean isItemValid(int slot, ItemStack stack)
+        {
+            return true;
+        }
+    }
+}
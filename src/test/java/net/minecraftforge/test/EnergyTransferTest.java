@@ -0,0 +1,135 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.minecraftforge.energy.EnergyStorage;
+import net.minecraftforge.energy.EnergyTransfer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnergyTransferTest
+{
+    /**
+     * Accepts only half of what it simulated when executing
+     */
+    private static class GreedySimulationStorage extends EnergyStorage
+    {
+        private GreedySimulationStorage(int capacity)
+        {
+            super(capacity);
+        }
+
+        @Override
+        public int receiveEnergy(int maxReceive, boolean simulate)
+        {
+            return super.receiveEnergy(simulate ? maxReceive : maxReceive / 2, simulate);
+        }
+    }
+
+    @Test
+    public void testEvenSplit()
+    {
+        EnergyStorage source = new EnergyStorage(1000, 1000, 1000, 1000);
+        EnergyStorage a = new EnergyStorage(1000);
+        EnergyStorage b = new EnergyStorage(1000);
+        EnergyTransfer transfer = new EnergyTransfer().addSource(source).addSink(a).addSink(b);
+        assertEquals(100, transfer.transfer(100, true));
+        assertEquals(1000, source.getEnergyStored());
+        assertEquals(100, transfer.transfer(100, false));
+        assertEquals(900, source.getEnergyStored());
+        assertEquals(50, a.getEnergyStored());
+        assertEquals(50, b.getEnergyStored());
+    }
+
+    @Test
+    public void testSinkTakesLessThanSimulated()
+    {
+        // The sources can not receive, so anything extracted but not delivered would be lost
+        EnergyStorage source = new EnergyStorage(1000, 0, 1000, 1000);
+        EnergyStorage greedy = new GreedySimulationStorage(1000);
+        EnergyStorage other = new EnergyStorage(1000);
+        EnergyTransfer transfer = new EnergyTransfer().addSource(source).addSink(greedy).addSink(other);
+        int delivered = transfer.transfer(200, false);
+        assertEquals(200, delivered);
+        assertEquals(50, greedy.getEnergyStored());
+        assertEquals(150, other.getEnergyStored());
+        assertEquals(800, source.getEnergyStored());
+    }
+
+    @Test
+    public void testNothingExtractedWithoutSink()
+    {
+        EnergyStorage source = new EnergyStorage(1000, 0, 1000, 1000);
+        EnergyStorage greedy = new GreedySimulationStorage(1000);
+        int delivered = new EnergyTransfer().addSource(source).addSink(greedy).transfer(100, false);
+        assertEquals(50, delivered);
+        assertEquals(50, greedy.getEnergyStored());
+        assertEquals(950, source.getEnergyStored());
+    }
+
+    @Test
+    public void testConservesEnergy()
+    {
+        Random random = new Random(42);
+        EnergyTransfer transfer = new EnergyTransfer();
+        for (int run = 0; run < 20000; run++)
+        {
+            transfer.clear();
+            List<EnergyStorage> storages = new ArrayList<>();
+            int sources = random.nextInt(6);
+            int sinks = random.nextInt(6);
+            for (int i = 0; i < sources + sinks; i++)
+            {
+                int capacity = random.nextInt(2000);
+                EnergyStorage storage = random.nextInt(4) == 0 ? new GreedySimulationStorage(capacity)
+                        : new EnergyStorage(capacity, random.nextInt(3) == 0 ? 0 : random.nextInt(500), random.nextInt(500), random.nextInt(capacity + 1));
+                storages.add(storage);
+                if (i < sources)
+                    transfer.addSource(storage);
+                else
+                    transfer.addSink(storage);
+            }
+
+            int before = total(storages);
+            int maxTransfer = random.nextInt(1500);
+            int simulated = transfer.transfer(maxTransfer, true);
+            assertEquals(before, total(storages), "Simulating changed the storages");
+
+            int sinksBefore = total(storages.subList(sources, storages.size()));
+            int delivered = transfer.transfer(maxTransfer, false);
+            assertEquals(before, total(storages), "Energy was created or lost");
+            assertEquals(delivered, total(storages.subList(sources, storages.size())) - sinksBefore);
+            assertTrue(delivered <= simulated && delivered <= maxTransfer);
+        }
+    }
+
+    private static int total(List<EnergyStorage> storages)
+    {
+        int total = 0;
+        for (EnergyStorage storage : storages)
+            total += storage.getEnergyStored();
+        return total;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import net.minecraftforge.common.util.RecipeMatcher;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecipeMatcherTest
+{
+    @Test
+    public void testMatchesBruteForce()
+    {
+        Random random = new Random(42);
+        for (int run = 0; run < 10000; run++)
+        {
+            int elements = random.nextInt(9);
+            boolean[][] accepts = new boolean[elements][elements];
+            double density = random.nextDouble();
+            for (int x = 0; x < elements; x++)
+                for (int y = 0; y < elements; y++)
+                    accepts[x][y] = random.nextDouble() < density;
+            check(accepts);
+        }
+    }
+
+    @Test
+    public void testLengthMismatch()
+    {
+        List<Integer> inputs = new ArrayList<>();
+        inputs.add(0);
+        List<Predicate<Integer>> tests = new ArrayList<>();
+        assertNull(RecipeMatcher.findMatches(inputs, tests));
+    }
+
+    @Test
+    public void testNeedsAugmentingPath()
+    {
+        // Greedy pairs test 0 with input 0, which leaves test 1 without an input
+        check(new boolean[][] {
+            { true, true, false },
+            { true, false, false },
+            { false, true, true }
+        });
+    }
+
+    @Test
+    public void testShrinkingSizes()
+    {
+        // The workspace is reused between calls, leftovers from a larger recipe must not leak into smaller ones
+        check(new boolean[][] {
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true },
+            { true, true, true, true, true, true, true, true, true, true, true, true }
+        });
+        check(new boolean[][] {
+            { false, true },
+            { false, true }
+        });
+        check(new boolean[][] {
+            { false, true },
+            { true, false }
+        });
+    }
+
+    private static void check(boolean[][] accepts)
+    {
+        int elements = accepts.length;
+        List<Integer> inputs = new ArrayList<>();
+        List<Predicate<Integer>> tests = new ArrayList<>();
+        for (int i = 0; i < elements; i++)
+        {
+            inputs.add(i);
+            boolean[] row = accepts[i];
+            tests.add(y -> row[y]);
+        }
+
+        int[] ret = RecipeMatcher.findMatches(inputs, tests);
+        boolean expected = bruteForce(accepts, 0, new boolean[elements]);
+        assertEquals(expected, ret != null);
+        if (ret == null)
+            return;
+
+        assertEquals(elements, ret.length);
+        boolean[] used = new boolean[elements];
+        for (int y = 0; y < elements; y++)
+        {
+            int x = ret[y];
+            assertTrue(x >= 0 && x < elements);
+            assertFalse(used[x], "Test used twice");
+            used[x] = true;
+            assertTrue(accepts[x][y], "Input paired with a test that does not accept it");
+        }
+    }
+
+    /**
+     * Tries every way to give each test its own input
+     */
+    private static boolean bruteForce(boolean[][] accepts, int test, boolean[] taken)
+    {
+        if (test == accepts.length)
+            return true;
+        for (int y = 0; y < accepts.length; y++)
+        {
+            if (accepts[test][y] && !taken[y])
+            {
+                taken[y] = true;
+                boolean found = bruteForce(accepts, test + 1, taken);
+                taken[y] = false;
+                if (found)
+                    return true;
+            }
+        }
+        return false;
+    }
+}
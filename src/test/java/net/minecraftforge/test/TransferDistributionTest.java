@@ -0,0 +1,92 @@
+/*
+ * Minecraft Forge
+ * Copyright (c) 2016-2020.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation version 2.1
+ * of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.minecraftforge.test;
+
+import java.util.Random;
+
+import net.minecraftforge.common.util.TransferDistribution;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransferDistributionTest
+{
+    @Test
+    public void testEvenSplit()
+    {
+        int[] out = new int[3];
+        assertEquals(10, new TransferDistribution().distribute(10, new int[] { 100, 2, 100 }, 3, out));
+        assertArrayEquals(new int[] { 4, 2, 4 }, out);
+    }
+
+    @Test
+    public void testLimitsTooSmall()
+    {
+        int[] out = new int[3];
+        assertEquals(5, new TransferDistribution().distribute(10, new int[] { 2, -4, 3 }, 3, out));
+        assertArrayEquals(new int[] { 2, 0, 3 }, out);
+    }
+
+    @Test
+    public void testInvariants()
+    {
+        TransferDistribution distribution = new TransferDistribution();
+        Random random = new Random(42);
+        for (int run = 0; run < 200000; run++)
+        {
+            int count = random.nextInt(12);
+            int[] limits = new int[count];
+            long sum = 0;
+            for (int i = 0; i < count; i++)
+            {
+                limits[i] = random.nextInt(5) == 0 ? -random.nextInt(10) : random.nextInt(random.nextBoolean() ? 20 : 100000);
+                sum += Math.max(0, limits[i]);
+            }
+            int amount = random.nextInt(random.nextBoolean() ? 50 : 500000);
+            int[] out = new int[count];
+            int distributed = distribution.distribute(amount, limits, count, out);
+
+            long total = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++)
+            {
+                assertTrue(out[i] >= 0 && out[i] <= Math.max(0, limits[i]), "Share out of bounds");
+                total += out[i];
+                if (limits[i] > 0 && out[i] < limits[i])
+                {
+                    min = Math.min(min, out[i]);
+                    max = Math.max(max, out[i]);
+                }
+            }
+            assertEquals(Math.min(amount, sum), total);
+            assertEquals(total, distributed);
+            if (min != Integer.MAX_VALUE)
+            {
+                assertTrue(max - min <= 1, "Uneven split between participants below their limit");
+                for (int i = 0; i < count; i++)
+                {
+                    // A participant that reached its limit could not have taken more than the others
+                    assertFalse(limits[i] > 0 && out[i] == limits[i] && limits[i] > min + 1, "Capped participant above the even share");
+                }
+            }
+        }
+    }
+}